@@ -14,6 +14,8 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+        // 微基准在可调试的 debug 包上运行，结果用于跨提交比较，不作为绝对值
+        testInstrumentationRunnerArguments["androidx.benchmark.suppressErrors"] = "DEBUGGABLE,EMULATOR,LOW-BATTERY"
     }
 
     buildTypes {
@@ -62,4 +64,11 @@ dependencies {
 
     // 4. MPAndroidChart (图表库)
     implementation("com.github.PhilJay:MPAndroidChart:v3.1.0")
+
+    // 5. Paging (分页加载明细列表)
+    implementation("androidx.paging:paging-runtime:3.2.1")
+    implementation("androidx.room:room-paging:$roomVersion")
+
+    // 6. Benchmark (androidTest 里的微基准，结果输出为 JSON)
+    androidTestImplementation("androidx.benchmark:benchmark-junit4:1.2.4")
 }
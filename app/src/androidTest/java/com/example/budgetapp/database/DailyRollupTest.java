@@ -0,0 +1,56 @@
+package com.example.budgetapp.database;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.budgetapp.analytics.DayIndex;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * 触发器按 SQL 计算的 day_key 要与 Java 端的 DayIndex 一致，1970 年以前的时间也要向下取整。
+ */
+@RunWith(AndroidJUnit4.class)
+public class DailyRollupTest {
+    private AppDatabase db;
+    private SupportSQLiteDatabase sql;
+
+    @Before
+    public void createDb() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+        sql = db.getOpenHelper().getWritableDatabase();
+    }
+
+    @After
+    public void closeDb() {
+        db.close();
+    }
+
+    @Test
+    public void dayKey_before1970_matchesDayIndex() {
+        long[] dates = {-1, -86_400_000L, -86_400_001L, -15_000_000_000L, 0, 1_704_103_200_000L};
+        for (long date : dates) {
+            // 原始 SQL 写入，day_key 故意填错，由触发器按 SQL 校正
+            sql.execSQL("INSERT INTO transactions (date, type, category_id, amount, day_key) VALUES (?, 0, 1, 100, 999999)",
+                    new Object[]{date});
+        }
+        try (Cursor c = sql.query("SELECT date, day_key FROM transactions ORDER BY id")) {
+            while (c.moveToNext()) {
+                long date = c.getLong(0);
+                assertEquals("date " + date, DayIndex.current().epochDay(date), c.getLong(1));
+            }
+        }
+        assertEquals(0, db.verifyDailyTotals());
+    }
+}
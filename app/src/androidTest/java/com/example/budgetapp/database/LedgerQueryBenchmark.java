@@ -0,0 +1,97 @@
+package com.example.budgetapp.database;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.budgetapp.viewmodel.PeriodWindow;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * DAO 区间查询的微基准，账本规模 1k / 100k / 1M 行。
+ * 结果由 BenchmarkRule 写成 JSON (connectedAndroidTest 的 additional_test_output 目录)，
+ * 可按提交归档对比。
+ */
+@RunWith(Parameterized.class)
+public class LedgerQueryBenchmark {
+    @Parameterized.Parameters(name = "rows={0}")
+    public static Collection<Object[]> sizes() {
+        return Arrays.asList(new Object[][]{{1_000}, {100_000}, {1_000_000}});
+    }
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private final int rows;
+    private TransactionDao dao;
+    private DailyTotalDao dailyDao;
+    private PeriodWindow month;
+    private PeriodWindow year;
+
+    public LedgerQueryBenchmark(int rows) {
+        this.rows = rows;
+    }
+
+    @Before
+    public void setUp() {
+        AppDatabase db = SyntheticLedger.open(
+                InstrumentationRegistry.getInstrumentation().getTargetContext(), rows);
+        dao = db.transactionDao();
+        dailyDao = db.dailyTotalDao();
+        // 取账本中段的一个月 / 一年
+        month = PeriodWindow.ofMonth(YearMonth.from(SyntheticLedger.START.plusYears(5).plusMonths(6)));
+        year = PeriodWindow.ofYear(SyntheticLedger.START.getYear() + 5);
+    }
+
+    @Test
+    public void monthTotal() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            dailyDao.getPeriodTotal(month.startDay, month.endDay);
+        }
+    }
+
+    @Test
+    public void yearDailyTotals() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            dailyDao.getDailyTotals(year.startDay, year.endDay);
+        }
+    }
+
+    // 全文检索首屏 (一页 50 条)：低频商家只命中少量行，高频商家命中约 1/10 的账本
+    @Test
+    public void searchRarePayee() {
+        String match = TransactionSearch.matchQuery("商户1234");
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            dao.searchSync(match, 50);
+        }
+    }
+
+    @Test
+    public void searchFrequentPayee() {
+        String match = TransactionSearch.matchQuery("星巴克");
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            dao.searchSync(match, 50);
+        }
+    }
+
+    @Test
+    public void yearExpenseByCategory() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            dailyDao.getExpenseByCategory(year.startDay, year.endDay);
+        }
+    }
+}
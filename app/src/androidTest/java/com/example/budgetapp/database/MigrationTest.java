@@ -0,0 +1,86 @@
+package com.example.budgetapp.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * 从 v1 (最初发布的结构) 依次执行全部手写迁移升到当前版本。
+ * 早期版本没有导出 schema JSON，MigrationTestHelper 建不出 v1 的库，这里按 v1 的建表语句手工建库；
+ * Room 打开时会在迁移后按实体校验每张表 (含 FtsTableInfo)，结构不一致即抛出 IllegalStateException。
+ */
+@RunWith(AndroidJUnit4.class)
+public class MigrationTest {
+    private static final String TEST_DB = "migration-test";
+
+    private Context context;
+    private AppDatabase db;
+
+    @Before
+    public void createV1() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        try (SQLiteDatabase v1 = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(TEST_DB), null)) {
+            v1.execSQL("CREATE TABLE IF NOT EXISTS `transactions` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`date` INTEGER NOT NULL, `type` INTEGER NOT NULL, `category` TEXT, `amount` REAL NOT NULL)");
+            v1.execSQL("INSERT INTO transactions (date, type, category, amount) VALUES (1704103200000, 0, '饮食', 12.5)");
+            v1.execSQL("INSERT INTO transactions (date, type, category, amount) VALUES (1704189600000, 0, NULL, 3)");
+            v1.execSQL("INSERT INTO transactions (date, type, category, amount) VALUES (1704189600000, 1, '工资', 8000)");
+            v1.setVersion(1);
+        }
+    }
+
+    @After
+    public void closeDb() {
+        if (db != null) db.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void migrateAll_fromV1_validatesAndKeepsData() {
+        db = Room.databaseBuilder(context, AppDatabase.class, TEST_DB)
+                .addMigrations(AppDatabase.ALL_MIGRATIONS)
+                .build();
+        // 打开即执行迁移与结构校验
+        SupportSQLiteDatabase sql = db.getOpenHelper().getWritableDatabase();
+        assertEquals(11, sql.getVersion());
+
+        try (Cursor c = sql.query("SELECT t.amount, c.name FROM transactions t "
+                + "JOIN categories c ON c.id = t.category_id ORDER BY t.id")) {
+            assertEquals(3, c.getCount());
+            c.moveToNext();
+            assertEquals(1250, c.getLong(0));
+            assertEquals("饮食", c.getString(1));
+            c.moveToNext();
+            assertEquals(Category.OTHER, c.getString(1));
+            c.moveToNext();
+            assertEquals(800000, c.getLong(0));
+            assertEquals("工资", c.getString(1));
+        }
+
+        // 汇总表、全文索引已重建，触发器在升级后继续维护它们
+        assertEquals(0, db.verifyDailyTotals());
+        db.transactionDao().insert(new Transaction(1704276000000L, 0, 1, 500));
+        assertEquals(0, db.verifyDailyTotals());
+        try (Cursor c = sql.query("SELECT docid FROM transactions_fts WHERE transactions_fts MATCH ?",
+                new Object[]{"饮食"})) {
+            assertEquals(1, c.getCount());
+        }
+        try (Cursor c = sql.query("SELECT COUNT(*) FROM change_log")) {
+            c.moveToFirst();
+            assertEquals(1, c.getLong(0));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.budgetapp.database;
+
+import android.content.Context;
+
+import androidx.room.Room;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试用的合成账本：固定随机种子，账单均匀分布在 START 起的 YEARS 年里。
+ * 同一规模的库在整个测试进程里只生成一次 (参数化基准按规模顺序执行)。
+ */
+public final class SyntheticLedger {
+    public static final LocalDate START = LocalDate.of(2015, 1, 1);
+    public static final int YEARS = 10;
+
+    private static final String[] CATEGORIES = {"饮食", "交通", "购物", "娱乐", "住房", "医疗", "其他"};
+    // 商家：少数高频 + 大量低频 (商户0 ~ 商户1999)，搜索基准两种都要覆盖
+    private static final String[] PAYEES = {"星巴克", "麦当劳", "滴滴出行", "京东", "美团"};
+    public static final int RARE_PAYEES = 2000;
+
+    private static AppDatabase cached;
+    private static int cachedRows = -1;
+
+    private SyntheticLedger() { }
+
+    public static synchronized AppDatabase open(Context context, int rows) {
+        if (cached != null && cachedRows == rows) return cached;
+        if (cached != null) cached.close();
+
+        String name = "benchmark_" + rows + ".db";
+        context.deleteDatabase(name);
+        cached = Room.databaseBuilder(context, AppDatabase.class, name).build();
+        cachedRows = rows;
+        fill(cached, rows);
+        return cached;
+    }
+
+    // 批量插入后一次性重建汇总表和检索表 (未注册触发器，插入更快)
+    private static void fill(AppDatabase db, int rows) {
+        ZoneId zone = ZoneId.systemDefault();
+        long start = START.atStartOfDay(zone).toInstant().toEpochMilli();
+        long span = START.plusYears(YEARS).atStartOfDay(zone).toInstant().toEpochMilli() - start;
+        Random random = new Random(42);
+        TransactionDao dao = db.transactionDao();
+        CategoryDictionary categories = new CategoryDictionary(db.categoryDao());
+        int income = categories.idOf(Category.INCOME, 1);
+        int[] expense = new int[CATEGORIES.length];
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            expense[i] = categories.idOf(CATEGORIES[i], 0);
+        }
+
+        List<Transaction> batch = new ArrayList<>(2000);
+        for (int i = 0; i < rows; i++) {
+            long date = start + (long) (random.nextDouble() * span);
+            boolean isIncome = random.nextInt(5) == 0;
+            int category = isIncome ? income : expense[random.nextInt(expense.length)];
+            Transaction t = new Transaction(date, isIncome ? 1 : 0, category, 100 + random.nextInt(50_000));
+            t.payee = random.nextBoolean() ? PAYEES[random.nextInt(PAYEES.length)] : "商户" + random.nextInt(RARE_PAYEES);
+            batch.add(t);
+            if (batch.size() == 2000) {
+                dao.insertAll(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) dao.insertAll(batch);
+        db.rebuildDailyTotals();
+        TransactionSearch.rebuild(db.getOpenHelper().getWritableDatabase());
+    }
+}
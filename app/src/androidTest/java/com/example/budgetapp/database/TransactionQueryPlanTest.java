@@ -0,0 +1,98 @@
+package com.example.budgetapp.database;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * 查询计划回归测试：统计页、日历页使用的区间查询必须命中 transactions 上的索引，
+ * 不能退化为全表扫描。SQL 与 {@link TransactionDao} 中的查询保持一致。
+ */
+@RunWith(AndroidJUnit4.class)
+public class TransactionQueryPlanTest {
+    private AppDatabase db;
+
+    @Before
+    public void createDb() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+    }
+
+    @After
+    public void closeDb() {
+        db.close();
+    }
+
+    @Test
+    public void rangeQuery_usesDateIndex() {
+        String plan = explain("SELECT * FROM transactions WHERE date >= ? AND date < ? ORDER BY date DESC",
+                0L, 1L);
+        assertUsesIndex(plan, "index_transactions_date");
+    }
+
+    @Test
+    public void typeRangeQuery_usesTypeDateIndex() {
+        String plan = explain("SELECT * FROM transactions WHERE type = ? AND date >= ? AND date < ? ORDER BY date DESC",
+                0, 0L, 1L);
+        assertUsesIndex(plan, "index_transactions_type_date");
+    }
+
+    @Test
+    public void categoryRangeQuery_usesCompositeIndex() {
+        String plan = explain("SELECT * FROM transactions WHERE category_id = ? AND type = ? "
+                + "AND date >= ? AND date < ? ORDER BY date DESC", 2, 0, 0L, 1L);
+        // 两个复合索引都是 "等值 + 区间"，由 SQLite 择一，但不允许全表扫描
+        assertUsesIndex(plan, "index_transactions_category_id_date", "index_transactions_type_date");
+    }
+
+    @Test
+    public void search_usesFtsIndexThenPrimaryKey() {
+        String plan = explain("SELECT t.* FROM transactions_fts JOIN transactions t ON t.id = transactions_fts.docid "
+                + "WHERE transactions_fts MATCH ? ORDER BY t.date DESC", TransactionSearch.matchQuery("午饭"));
+        assertTrue("未使用全文索引: " + plan, plan.contains("VIRTUAL TABLE INDEX"));
+        assertTrue("未按主键取行: " + plan, plan.contains("SEARCH t USING INTEGER PRIMARY KEY"));
+    }
+
+    @Test
+    public void exportPage_walksDateIndexWithoutSorting() {
+        String plan = explain("SELECT t.*, c.name AS category_name FROM transactions t "
+                + "LEFT JOIN categories c ON c.id = t.category_id "
+                + "WHERE t.date >= ? AND t.date < ? AND (t.date > ? OR t.id > ?) "
+                + "AND (? IS NULL OR t.type = ?) AND (? IS NULL OR t.category_id = ?) "
+                + "ORDER BY t.date, t.id LIMIT ?", 0L, 1L, 0L, -1, null, null, null, null, 2000);
+        assertUsesIndex(plan, "index_transactions_date");
+        // 键集分页依赖索引顺序，排序缓冲会让每一页都扫完整个区间
+        assertFalse("需要排序: " + plan, plan.contains("TEMP B-TREE"));
+    }
+
+    private String explain(String sql, Object... args) {
+        StringBuilder plan = new StringBuilder();
+        try (Cursor c = db.query("EXPLAIN QUERY PLAN " + sql, args)) {
+            int detail = c.getColumnIndexOrThrow("detail");
+            while (c.moveToNext()) {
+                plan.append(c.getString(detail)).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+
+    private static void assertUsesIndex(String plan, String... acceptable) {
+        assertFalse("全表扫描: " + plan, Pattern.compile("(?m)^SCAN (TABLE )?transactions$").matcher(plan).find());
+        for (String index : acceptable) {
+            if (plan.contains("INDEX " + index)) return;
+        }
+        fail("未命中索引 " + String.join(" / ", acceptable) + ": " + plan);
+    }
+}
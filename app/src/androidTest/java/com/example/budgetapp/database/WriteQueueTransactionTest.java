@@ -0,0 +1,94 @@
+package com.example.budgetapp.database;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * WriteQueue 在真实的 Room 事务上的行为：DAO 写方法各开嵌套事务，
+ * 同批里一条失败时其余写入仍要提交，且只为真正写入的日期回调。
+ */
+@RunWith(AndroidJUnit4.class)
+public class WriteQueueTransactionTest {
+    private AppDatabase db;
+    private TransactionDao dao;
+    private ExecutorService writer;
+    private final List<long[]> batches = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void createDb() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+        dao = db.transactionDao();
+        writer = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void closeDb() {
+        writer.shutdownNow();
+        db.close();
+    }
+
+    private static Transaction row(int id, long dayKey) {
+        Transaction t = new Transaction(dayKey * 86_400_000L, 0, 1, 100);
+        t.id = id;
+        t.dayKey = dayKey;
+        return t;
+    }
+
+    @Test
+    public void failedInsert_doesNotRollBackTheRestOfTheBatch() throws Exception {
+        dao.insert(row(1, 10));
+        WriteQueue queue = new WriteQueue(db::runInTransaction, writer, 50, batches::add);
+
+        CompletableFuture<Void> first = queue.submit(() -> {
+            dao.insert(row(2, 11));
+            return new long[]{11};
+        });
+        // 主键冲突：Room 的 insert 抛出 SQLiteConstraintException
+        CompletableFuture<Void> duplicate = queue.submit(() -> {
+            dao.insert(row(1, 12));
+            return new long[]{12};
+        });
+        CompletableFuture<Void> last = queue.submit(() -> {
+            dao.insert(row(3, 13));
+            return new long[]{13};
+        });
+
+        first.get(5, TimeUnit.SECONDS);
+        last.get(5, TimeUnit.SECONDS);
+        try {
+            duplicate.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException expected) {
+            // 只有这一条失败
+        }
+
+        try (Cursor c = db.query("SELECT id FROM transactions ORDER BY id", null)) {
+            assertEquals(3, c.getCount());
+            int i = 1;
+            while (c.moveToNext()) assertEquals(i++, c.getInt(0));
+        }
+        assertEquals(1, batches.size());
+        assertArrayEquals(new long[]{11, 13}, batches.get(0));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.budgetapp.viewmodel;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.budgetapp.database.AppDatabase;
+import com.example.budgetapp.database.DailyTotalDao;
+import com.example.budgetapp.database.SyntheticLedger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * FinanceViewModel 在计算线程上的完整路径：日历格子 + 月合计、统计页的年/月/周分桶与饼图。
+ * 与 LedgerQueryBenchmark 共用合成账本，结果同样输出为 JSON。
+ */
+@RunWith(Parameterized.class)
+public class PeriodComputeBenchmark {
+    @Parameterized.Parameters(name = "rows={0}")
+    public static Collection<Object[]> sizes() {
+        return Arrays.asList(new Object[][]{{1_000}, {100_000}, {1_000_000}});
+    }
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private final int rows;
+    private DailyTotalDao dailyDao;
+    private LocalDate date;
+
+    public PeriodComputeBenchmark(int rows) {
+        this.rows = rows;
+    }
+
+    @Before
+    public void setUp() {
+        AppDatabase db = SyntheticLedger.open(
+                InstrumentationRegistry.getInstrumentation().getTargetContext(), rows);
+        dailyDao = db.dailyTotalDao();
+        date = SyntheticLedger.START.plusYears(5).plusMonths(6);
+    }
+
+    @Test
+    public void calendarMonth() {
+        YearMonth month = YearMonth.from(date);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            CalendarMonth.load(dailyDao, month, RecurringProjection.EMPTY);
+        }
+    }
+
+    @Test
+    public void chartYear() {
+        chart(StatsPeriod.MODE_YEAR);
+    }
+
+    @Test
+    public void chartMonth() {
+        chart(StatsPeriod.MODE_MONTH);
+    }
+
+    @Test
+    public void chartWeek() {
+        chart(StatsPeriod.MODE_WEEK);
+    }
+
+    private void chart(int mode) {
+        StatsPeriod period = StatsPeriod.of(mode, date);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            ChartSeries.load(dailyDao, period, RecurringProjection.EMPTY);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.budgetapp;
+
+import com.example.budgetapp.database.CategoryDictionary;
+import com.example.budgetapp.database.Transaction;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 备份文件格式 (整体再经 gzip 压缩)：
+ * <pre>
+ * 头部   : MAGIC(int) VERSION(int) 类型(byte) 创建时间(long) 基准备份时间(long) fromSeq(long) toSeq(long)
+ * 完整备份每行 : ROW(byte) id(int) date(long) type(byte) 分类引用 amount(long，单位：分) 备注 商家
+ * 增量备份每条 : UPSERT(byte) seq(long) 同上的整行  或  DELETE(byte) seq(long) id(int)
+ * 结尾   : END(byte) 记录数(long)
+ * </pre>
+ * 完整备份是 toSeq 时刻的快照；增量备份包含 (fromSeq, toSeq] 的变更，
+ * 通过基准备份时间与所属的完整备份对应。v1 文件没有类型/序号字段，按序号 0 的完整备份读取。
+ * 分类字符串做字典编码：首次出现写 NEW_CATEGORY + 字符串，之后只写其序号。
+ * 备注、商家 (v3 起) 各写一个是否为空的 boolean，非空时再写字符串；v2 及以前的文件读出为空。
+ * v4 起所有字符串改为 变长整数 (UTF-8 字节数 + 1，0 表示空) + UTF-8 字节，
+ * 不再受 writeUTF 的 65535 字节上限限制 (一条很长的备注曾导致整个备份失败)。
+ */
+public final class BackupData {
+    static final int MAGIC = 0x54414C59;    // "TALY"
+    static final int VERSION = 4;
+
+    static final byte KIND_FULL = 0;
+    static final byte KIND_DELTA = 1;
+
+    static final byte END = 0;
+    static final byte ROW = 1;
+    static final byte UPSERT = 2;
+    static final byte DELETE = 3;
+
+    private static final int NULL_CATEGORY = -1;
+    private static final int NEW_CATEGORY = -2;
+
+    private BackupData() { }
+
+    static final class Header {
+        final int version;
+        final byte kind;
+        final long createdAt;
+        final long baseCreatedAt;   // 所属完整备份的创建时间，完整备份即自身
+        final long fromSeq;
+        final long toSeq;
+
+        Header(byte kind, long createdAt, long baseCreatedAt, long fromSeq, long toSeq) {
+            this(VERSION, kind, createdAt, baseCreatedAt, fromSeq, toSeq);
+        }
+
+        Header(int version, byte kind, long createdAt, long baseCreatedAt, long fromSeq, long toSeq) {
+            this.version = version;
+            this.kind = kind;
+            this.createdAt = createdAt;
+            this.baseCreatedAt = baseCreatedAt;
+            this.fromSeq = fromSeq;
+            this.toSeq = toSeq;
+        }
+    }
+
+    static void writeHeader(DataOutputStream out, Header h) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeByte(h.kind);
+        out.writeLong(h.createdAt);
+        out.writeLong(h.baseCreatedAt);
+        out.writeLong(h.fromSeq);
+        out.writeLong(h.toSeq);
+    }
+
+    static Header readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) throw new IOException("不是有效的备份文件");
+        int version = in.readInt();
+        if (version == 1) {
+            long createdAt = in.readLong();
+            return new Header(1, KIND_FULL, createdAt, createdAt, 0, 0);
+        }
+        if (version < 2 || version > VERSION) throw new IOException("不支持的备份版本: " + version);
+        byte kind = in.readByte();
+        if (kind != KIND_FULL && kind != KIND_DELTA) throw new IOException("备份文件已损坏");
+        return new Header(version, kind, in.readLong(), in.readLong(), in.readLong(), in.readLong());
+    }
+
+    static void writeEnd(DataOutputStream out, long rows) throws IOException {
+        out.writeByte(END);
+        out.writeLong(rows);
+    }
+
+    // 写入端的分类字典
+    static final class Writer {
+        private final DataOutputStream out;
+        private final Map<String, Integer> categories = new HashMap<>();
+
+        Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void writeRow(int id, long date, int type, String category, long amount, String note, String payee)
+                throws IOException {
+            out.writeByte(ROW);
+            writeFields(id, date, type, category, amount, note, payee);
+        }
+
+        void writeUpsert(long seq, int id, long date, int type, String category, long amount,
+                         String note, String payee) throws IOException {
+            out.writeByte(UPSERT);
+            out.writeLong(seq);
+            writeFields(id, date, type, category, amount, note, payee);
+        }
+
+        void writeDelete(long seq, int id) throws IOException {
+            out.writeByte(DELETE);
+            out.writeLong(seq);
+            out.writeInt(id);
+        }
+
+        private void writeFields(int id, long date, int type, String category, long amount,
+                                 String note, String payee) throws IOException {
+            out.writeInt(id);
+            out.writeLong(date);
+            out.writeByte(type);
+            if (category == null) {
+                out.writeInt(NULL_CATEGORY);
+            } else {
+                Integer index = categories.get(category);
+                if (index != null) {
+                    out.writeInt(index);
+                } else {
+                    out.writeInt(NEW_CATEGORY);
+                    writeString(out, category);
+                    categories.put(category, categories.size());
+                }
+            }
+            out.writeLong(amount);
+            writeString(out, note);
+            writeString(out, payee);
+        }
+    }
+
+    static void writeString(DataOutputStream out, String text) throws IOException {
+        if (text == null) {
+            out.writeByte(0);
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = readVarint(in) - 1;
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // 无符号 LEB128：每字节 7 位，高位为 1 表示后面还有
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) break;
+                return value;
+            }
+        }
+        throw new IOException("备份文件已损坏");
+    }
+
+    // 增量备份中的一条变更；删除时 row 只有 id
+    static final class Change {
+        final long seq;
+        final boolean delete;
+        final Transaction row;
+
+        Change(long seq, boolean delete, Transaction row) {
+            this.seq = seq;
+            this.delete = delete;
+            this.row = row;
+        }
+    }
+
+    // 读取端的分类字典：文件里的分类名在第一次出现时换成本机的 category_id
+    static final class Reader {
+        private final DataInputStream in;
+        private final int version;
+        private final CategoryDictionary dictionary;
+        private final List<Integer> categories = new ArrayList<>();
+        private long rowsRead;
+
+        Reader(DataInputStream in, Header header, CategoryDictionary dictionary) {
+            this.in = in;
+            this.version = header.version;
+            this.dictionary = dictionary;
+        }
+
+        // 完整备份：返回下一行；读到结尾标记时校验行数并返回 null
+        Transaction readRow() throws IOException {
+            byte tag = in.readByte();
+            if (tag == END) {
+                checkEnd();
+                return null;
+            }
+            if (tag != ROW) throw new IOException("备份文件已损坏");
+            return readFields();
+        }
+
+        // 增量备份：返回下一条变更；读到结尾标记时校验条数并返回 null
+        Change readChange() throws IOException {
+            byte tag = in.readByte();
+            if (tag == END) {
+                checkEnd();
+                return null;
+            }
+            if (tag != UPSERT && tag != DELETE) throw new IOException("备份文件已损坏");
+            long seq = in.readLong();
+            if (tag == UPSERT) return new Change(seq, false, readFields());
+            Transaction t = new Transaction(0, 0, 0, 0);
+            t.id = in.readInt();
+            rowsRead++;
+            return new Change(seq, true, t);
+        }
+
+        private void checkEnd() throws IOException {
+            long expected = in.readLong();
+            if (expected != rowsRead) throw new IOException("备份文件不完整: " + rowsRead + "/" + expected);
+        }
+
+        private Transaction readFields() throws IOException {
+            int id = in.readInt();
+            long date = in.readLong();
+            int type = in.readByte();
+            int ref = in.readInt();
+            int category;
+            if (ref == NULL_CATEGORY) {
+                category = dictionary.idOf(null, type);
+            } else if (ref == NEW_CATEGORY) {
+                category = dictionary.idOf(version >= 4 ? readString(in) : in.readUTF(), type);
+                categories.add(category);
+            } else {
+                category = categories.get(ref);
+            }
+            Transaction t = new Transaction(date, type, category, in.readLong());
+            t.id = id;
+            if (version >= 3) {
+                t.note = readText();
+                t.payee = readText();
+            }
+            rowsRead++;
+            return t;
+        }
+
+        private String readText() throws IOException {
+            if (version >= 4) return readString(in);
+            return in.readBoolean() ? in.readUTF() : null;
+        }
+    }
+}
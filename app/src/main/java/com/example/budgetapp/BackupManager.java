@@ -0,0 +1,310 @@
+package com.example.budgetapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.example.budgetapp.database.AppDatabase;
+import com.example.budgetapp.database.CategoryDictionary;
+import com.example.budgetapp.database.ChangeJournal;
+import com.example.budgetapp.database.ChangeLogEntry;
+import com.example.budgetapp.database.DailyRollup;
+import com.example.budgetapp.database.Transaction;
+import com.example.budgetapp.database.TransactionDao;
+import com.example.budgetapp.database.TransactionSearch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 账本的备份与恢复，文件格式见 {@link BackupData}。
+ * 备份在独立的只读连接上读取 (见 {@link #openSnapshot})，不阻塞记账。
+ * 完整备份通过游标逐行写出；增量备份只写出上次检查点之后的变更日志 (见 ChangeJournal)，
+ * I/O 与期间的改动量成正比，与账本大小无关。恢复按 BATCH_SIZE 分批插入，
+ * 再按顺序重放增量备份，可停在任意序号。
+ * 所有方法都会阻塞，需在后台线程调用；都不负责关闭传入的流。
+ * 备份方法只返回待提交的检查点，调用方关闭文件且没有出错后再 {@link #commit} 推进。
+ */
+public class BackupManager {
+    public static final int BATCH_SIZE = 2000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // 检查点：最近一次备份覆盖到的序号及其所属完整备份
+    private static final String PREFS = "backup";
+    private static final String KEY_SEQ = "checkpoint_seq";
+    private static final String KEY_BASE = "checkpoint_base";
+    // 检查点之后最多保留的日志条数
+    static final long MAX_PENDING_CHANGES = 100_000;
+
+    private final Context context;
+    private final AppDatabase db;
+    private final TransactionDao dao;
+    private final SharedPreferences prefs;
+
+    // 一次备份的结果：写出的条数，以及文件落盘后应推进到的检查点
+    public static final class Checkpoint {
+        public final long count;
+        public final long base;     // 所属完整备份的创建时间
+        public final long seq;
+
+        Checkpoint(long count, long base, long seq) {
+            this.count = count;
+            this.base = base;
+            this.seq = seq;
+        }
+    }
+
+    public BackupManager(Context context) {
+        this.context = context.getApplicationContext();
+        this.db = AppDatabase.getDatabase(context);
+        this.dao = db.transactionDao();
+        this.prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    // 是否已有完整备份作为增量备份的基准
+    public boolean hasCheckpoint() {
+        return prefs.contains(KEY_BASE);
+    }
+
+    // 写出完整备份，返回行数和待提交的检查点。行与序号在同一个读事务里读取，得到一致的快照
+    public Checkpoint backup(OutputStream out) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(out, BUFFER_SIZE);
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(gzip, BUFFER_SIZE));
+        long createdAt = System.currentTimeMillis();
+
+        long rows = 0;
+        long seq;
+        try (SQLiteDatabase snapshot = openSnapshot()) {
+            snapshot.beginTransactionReadOnly();
+            try (Cursor c = snapshot.rawQuery("SELECT t.*, c.name AS category_name FROM transactions t "
+                    + "LEFT JOIN categories c ON c.id = t.category_id ORDER BY t.id", null)) {
+                seq = ChangeJournal.currentSeq(snapshot);
+                BackupData.writeHeader(data, new BackupData.Header(BackupData.KIND_FULL, createdAt, createdAt, 0, seq));
+                BackupData.Writer writer = new BackupData.Writer(data);
+                int id = c.getColumnIndexOrThrow("id");
+                int date = c.getColumnIndexOrThrow("date");
+                int type = c.getColumnIndexOrThrow("type");
+                int category = c.getColumnIndexOrThrow("category_name");
+                int amount = c.getColumnIndexOrThrow("amount");
+                int note = c.getColumnIndexOrThrow("note");
+                int payee = c.getColumnIndexOrThrow("payee");
+                while (c.moveToNext()) {
+                    writer.writeRow(c.getInt(id), c.getLong(date), c.getInt(type), text(c, category),
+                            c.getLong(amount), text(c, note), text(c, payee));
+                    rows++;
+                }
+            } finally {
+                snapshot.endTransaction();
+            }
+        }
+
+        BackupData.writeEnd(data, rows);
+        data.flush();
+        gzip.finish();
+        return new Checkpoint(rows, createdAt, seq);
+    }
+
+    // 写出上次检查点之后的变更，返回变更条数和待提交的检查点。需要先做过一次完整备份
+    public Checkpoint backupChanges(OutputStream out) throws IOException {
+        if (!hasCheckpoint()) throw new IllegalStateException("请先做一次完整备份");
+        long base = prefs.getLong(KEY_BASE, 0);
+        long from = prefs.getLong(KEY_SEQ, 0);
+
+        GZIPOutputStream gzip = new GZIPOutputStream(out, BUFFER_SIZE);
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(gzip, BUFFER_SIZE));
+
+        long changes = 0;
+        long to;
+        try (SQLiteDatabase snapshot = openSnapshot()) {
+            snapshot.beginTransactionReadOnly();
+            try {
+                to = ChangeJournal.currentSeq(snapshot);
+                BackupData.writeHeader(data, new BackupData.Header(BackupData.KIND_DELTA,
+                        System.currentTimeMillis(), base, from, to));
+                BackupData.Writer writer = new BackupData.Writer(data);
+                try (Cursor c = snapshot.rawQuery("SELECT l.*, c.name AS category_name FROM change_log l "
+                        + "LEFT JOIN categories c ON c.id = l.category_id WHERE seq > ? AND seq <= ? ORDER BY seq",
+                        new String[]{String.valueOf(from), String.valueOf(to)})) {
+                    int seq = c.getColumnIndexOrThrow("seq");
+                    int op = c.getColumnIndexOrThrow("op");
+                    int id = c.getColumnIndexOrThrow("row_id");
+                    int date = c.getColumnIndexOrThrow("date");
+                    int type = c.getColumnIndexOrThrow("type");
+                    int category = c.getColumnIndexOrThrow("category_name");
+                    int amount = c.getColumnIndexOrThrow("amount");
+                    int note = c.getColumnIndexOrThrow("note");
+                    int payee = c.getColumnIndexOrThrow("payee");
+                    while (c.moveToNext()) {
+                        if (c.getInt(op) == ChangeLogEntry.OP_DELETE) {
+                            writer.writeDelete(c.getLong(seq), c.getInt(id));
+                        } else {
+                            writer.writeUpsert(c.getLong(seq), c.getInt(id), c.getLong(date), c.getInt(type),
+                                    text(c, category), c.getLong(amount), text(c, note), text(c, payee));
+                        }
+                        changes++;
+                    }
+                }
+            } finally {
+                snapshot.endTransaction();
+            }
+        }
+
+        BackupData.writeEnd(data, changes);
+        data.flush();
+        gzip.finish();
+        return new Checkpoint(changes, base, to);
+    }
+
+    // 备份专用的只读连接。WAL 模式下它的读事务是开始读取那一刻的快照，
+    // 不占用 Room 的写连接，备份期间照常记账；先经 Room 打开一次，保证迁移已经完成
+    private SQLiteDatabase openSnapshot() {
+        db.getOpenHelper().getWritableDatabase();
+        return SQLiteDatabase.openDatabase(context.getDatabasePath(AppDatabase.NAME),
+                new SQLiteDatabase.OpenParams.Builder().addOpenFlags(SQLiteDatabase.OPEN_READONLY).build());
+    }
+
+    private static String text(Cursor c, int column) {
+        return c.isNull(column) ? null : c.getString(column);
+    }
+
+    // 推进检查点，并清理已被备份覆盖的日志 (界面还没读到的部分保留，见 AppDatabase.pruneChangeLog)。
+    // 只能在备份文件成功关闭后调用：提供方可能到 close 时才真正写出，此前失败的备份不能算数
+    public void commit(Checkpoint checkpoint) {
+        // 检查点先同步落盘再删日志，进程中途被杀也不会丢掉下次增量要用的记录
+        prefs.edit().putLong(KEY_BASE, checkpoint.base).putLong(KEY_SEQ, checkpoint.seq).commit();
+        db.pruneChangeLog(checkpoint.seq);
+    }
+
+    // 清理增量备份用不到的日志：没有检查点时下次只能做完整备份，日志全部可以删除；
+    // 检查点之后积压超过 MAX_PENDING_CHANGES 条时放弃检查点，下次备份改为完整备份，日志不再无限增长
+    public void trimChangeLog() {
+        if (hasCheckpoint()) {
+            long checkpoint = prefs.getLong(KEY_SEQ, 0);
+            long current = ChangeJournal.currentSeq(db.getOpenHelper().getReadableDatabase());
+            if (current - checkpoint <= MAX_PENDING_CHANGES) {
+                db.pruneChangeLog(checkpoint);
+                return;
+            }
+            prefs.edit().remove(KEY_BASE).remove(KEY_SEQ).apply();
+        }
+        db.pruneChangeLog(Long.MAX_VALUE);
+    }
+
+    // 用完整备份替换当前账本，返回恢复的行数
+    public long restore(InputStream full) throws IOException {
+        restore(full, new ArrayList<>(), Long.MAX_VALUE);
+        return dao.count();
+    }
+
+    // 恢复完整备份，再按顺序重放增量备份直到 targetSeq (含)，返回实际恢复到的序号。
+    // 整个恢复在一个事务里完成，任一文件损坏或不连续时回滚，原数据不受影响。
+    // 恢复后账本脱离原备份链，需要重新做完整备份
+    public long restore(InputStream full, List<InputStream> deltas, long targetSeq) throws IOException {
+        DataInputStream data = open(full);
+        BackupData.Header header = BackupData.readHeader(data);
+        if (header.kind != BackupData.KIND_FULL) throw new IOException("第一个文件必须是完整备份");
+        if (header.toSeq > targetSeq) throw new IOException("完整备份晚于目标序号 " + targetSeq);
+
+        SupportSQLiteDatabase sql = db.getOpenHelper().getWritableDatabase();
+        long seq = header.toSeq;
+        db.beginTransaction();
+        try {
+            // 汇总、检索触发器逐行维护太慢，先摘掉，写完后一次性重建；恢复本身不记入变更日志
+            DailyRollup.dropTriggers(sql);
+            ChangeJournal.dropTriggers(sql);
+            TransactionSearch.dropTriggers(sql);
+            sql.execSQL("DELETE FROM transactions");
+            sql.execSQL("DELETE FROM change_log");
+
+            // 备份里存的是分类名，按本机的分类表换成 id，缺的分类随之补上
+            CategoryDictionary categories = new CategoryDictionary(db.categoryDao());
+            restoreRows(new BackupData.Reader(data, header, categories));
+            for (InputStream in : deltas) {
+                if (seq >= targetSeq) break;
+                DataInputStream delta = open(in);
+                BackupData.Header h = BackupData.readHeader(delta);
+                if (h.kind != BackupData.KIND_DELTA || h.baseCreatedAt != header.createdAt) {
+                    throw new IOException("增量备份不属于该完整备份");
+                }
+                if (h.fromSeq != seq) throw new IOException("增量备份不连续: " + seq + " -> " + h.fromSeq);
+                replay(sql, new BackupData.Reader(delta, h, categories), targetSeq);
+                // 序号可能有空洞 (回滚的事务)，以文件声明的范围为准
+                seq = Math.min(h.toSeq, targetSeq);
+            }
+
+            DailyRollup.rebuild(sql);
+            TransactionSearch.rebuild(sql);
+            DailyRollup.createTriggers(sql);
+            ChangeJournal.createTriggers(sql);
+            TransactionSearch.createTriggers(sql);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        prefs.edit().remove(KEY_BASE).remove(KEY_SEQ).apply();
+        return seq;
+    }
+
+    private static DataInputStream open(InputStream in) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new GZIPInputStream(in, BUFFER_SIZE), BUFFER_SIZE));
+    }
+
+    private void restoreRows(BackupData.Reader reader) throws IOException {
+        List<Transaction> batch = new ArrayList<>(BATCH_SIZE);
+        Transaction t;
+        while ((t = reader.readRow()) != null) {
+            batch.add(t);
+            if (batch.size() >= BATCH_SIZE) {
+                dao.insertAll(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) dao.insertAll(batch);
+    }
+
+    // 按序号顺序逐条重放，遇到超过 targetSeq 的记录即停止
+    private static void replay(SupportSQLiteDatabase sql, BackupData.Reader reader, long targetSeq)
+            throws IOException {
+        SupportSQLiteStatement upsert = sql.compileStatement(
+                "INSERT OR REPLACE INTO transactions (id, date, type, category_id, amount, day_key, note, payee) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+        SupportSQLiteStatement delete = sql.compileStatement("DELETE FROM transactions WHERE id = ?");
+        BackupData.Change change;
+        while ((change = reader.readChange()) != null) {
+            if (change.seq > targetSeq) return;
+            Transaction t = change.row;
+            if (change.delete) {
+                delete.bindLong(1, t.id);
+                delete.executeUpdateDelete();
+            } else {
+                upsert.bindLong(1, t.id);
+                upsert.bindLong(2, t.date);
+                upsert.bindLong(3, t.type);
+                upsert.bindLong(4, t.categoryId);
+                upsert.bindLong(5, t.amount);
+                upsert.bindLong(6, t.dayKey);
+                bindText(upsert, 7, t.note);
+                bindText(upsert, 8, t.payee);
+                upsert.executeInsert();
+            }
+        }
+    }
+
+    private static void bindText(SupportSQLiteStatement statement, int index, String text) {
+        if (text == null) statement.bindNull(index);
+        else statement.bindString(index, text);
+    }
+}
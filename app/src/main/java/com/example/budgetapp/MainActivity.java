@@ -1,5 +1,6 @@
 package com.example.budgetapp;
 
+import android.content.ComponentCallbacks2;
 import android.os.Bundle;
 import android.widget.LinearLayout; // 导入 LinearLayout
 import androidx.appcompat.app.AppCompatActivity;
@@ -9,6 +10,7 @@ import androidx.core.view.WindowInsetsCompat; // 导入 WindowInsetsCompat
 import androidx.navigation.NavController;
 import androidx.navigation.fragment.NavHostFragment;
 import androidx.navigation.ui.NavigationUI;
+import com.example.budgetapp.concurrent.AppExecutors;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 
 public class MainActivity extends AppCompatActivity {
@@ -50,4 +52,11 @@ public class MainActivity extends AppCompatActivity {
             });
         }
     }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // 界面退到后台时把线程池的排队统计写进日志，一次使用下来的排队情况可在 logcat 里查看
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) AppExecutors.get().logStats();
+    }
 }
\ No newline at end of file
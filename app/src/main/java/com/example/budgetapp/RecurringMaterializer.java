@@ -0,0 +1,58 @@
+package com.example.budgetapp;
+
+import com.example.budgetapp.database.AppDatabase;
+import com.example.budgetapp.database.RecurringRule;
+import com.example.budgetapp.database.RecurringRuleDao;
+import com.example.budgetapp.database.Transaction;
+import com.example.budgetapp.database.TransactionDao;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 把重复规则到期的发生日写成真正的账单。
+ * 每条规则记着已写到哪一天 (materialized_through)，每次只补 [materialized_through, today] 之间的发生日：
+ * 隔几个月才打开也会一次补齐，重复运行不会重复入账。所有规则的账单用一次 insertAll 写入，
+ * 与进度更新同在一个事务里 (一次变更通知)。未到期的发生日不写库，界面按需展开 (见 RecurringProjection)。
+ */
+public class RecurringMaterializer {
+    private final AppDatabase db;
+    private final RecurringRuleDao rules;
+    private final TransactionDao transactions;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    public RecurringMaterializer(AppDatabase db) {
+        this.db = db;
+        this.rules = db.recurringRuleDao();
+        this.transactions = db.transactionDao();
+    }
+
+    // 在写线程调用，返回写入的账单数
+    public int materializeDue(LocalDate today) {
+        long through = today.plusDays(1).toEpochDay();
+        return db.runInTransaction(() -> {
+            List<RecurringRule> due = rules.getDue(today.toEpochDay());
+            if (due.isEmpty()) return 0;
+            List<Transaction> batch = new ArrayList<>();
+            for (RecurringRule rule : due) {
+                rule.recurrence().forEach(rule.materializedThrough, through, day -> batch.add(toTransaction(rule, day)));
+            }
+            if (!batch.isEmpty()) transactions.insertAll(batch);
+            for (RecurringRule rule : due) {
+                rules.setMaterializedThrough(rule.id, through);
+            }
+            return batch.size();
+        });
+    }
+
+    // 记在发生日当天零点，与手动记账一致
+    private Transaction toTransaction(RecurringRule rule, long day) {
+        long ts = LocalDate.ofEpochDay(day).atStartOfDay(zone).toInstant().toEpochMilli();
+        Transaction t = new Transaction(ts, rule.type, rule.categoryId, rule.amount);
+        t.note = rule.note;
+        t.payee = rule.payee;
+        return t;
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.budgetapp;
+
+import android.database.Cursor;
+import android.os.CancellationSignal;
+
+import com.example.budgetapp.database.AppDatabase;
+import com.example.budgetapp.database.Money;
+import com.example.budgetapp.database.TransactionDao;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 按 时间区间 / 类型 / 分类 筛选导出账单为 CSV 或 JSON。
+ * 按 (date, id) 键集分页，每页 PAGE_SIZE 行用一个游标读取 (走 date 索引，无需排序)，经带缓冲的 Writer
+ * 直接写出，内存占用与行数无关；每页之间回报进度并检查是否已取消。各页不在同一个读事务里，
+ * 导出期间的新写入可能出现在后面的页中。
+ * CSV 的列与 {@link TransactionImporter} 一致，导出的文件可以再导入。
+ */
+public class TransactionExporter {
+    public static final int PAGE_SIZE = 2000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final DateTimeFormatter SECONDS = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    public enum Format { CSV, JSON }
+
+    // 筛选条件：[start, end) 为时间戳区间；type / categoryId 为 null 表示不限
+    public static final class Filter {
+        public final long start;
+        public final long end;
+        public final Integer type;
+        public final Integer categoryId;
+
+        public Filter(long start, long end, Integer type, Integer categoryId) {
+            this.start = start;
+            this.end = end;
+            this.type = type;
+            this.categoryId = categoryId;
+        }
+
+        public static Filter all() {
+            return new Filter(Long.MIN_VALUE, Long.MAX_VALUE, null, null);
+        }
+    }
+
+    public interface ProgressListener {
+        // 开始时、每写出一页、结束时各回调一次 (在导出线程上)
+        void onProgress(long exported, long total);
+    }
+
+    // 导出进度/结果：finished 为 true 时表示已结束；cancelled 表示被取消 (文件不完整)，error 非空表示中途失败
+    public static final class Result {
+        public final long exported;
+        public final long total;
+        public final boolean finished;
+        public final boolean cancelled;
+        public final String error;
+
+        public Result(long exported, long total, boolean finished, boolean cancelled, String error) {
+            this.exported = exported;
+            this.total = total;
+            this.finished = finished;
+            this.cancelled = cancelled;
+            this.error = error;
+        }
+    }
+
+    private final TransactionDao dao;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    public TransactionExporter(AppDatabase db) {
+        this.dao = db.transactionDao();
+    }
+
+    // 在后台线程调用；不负责关闭 out。cancel 可为 null
+    public Result exportTo(OutputStream out, Format format, Filter filter,
+                           CancellationSignal cancel, ProgressListener listener) throws IOException {
+        long total = dao.countForExport(filter.start, filter.end, filter.type, filter.categoryId);
+        if (listener != null) listener.onProgress(0, total);
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        if (format == Format.CSV) {
+            // BOM 让 Excel 按 UTF-8 打开；导入时会跳过
+            writer.write("\uFEFF日期,类型,分类,金额,备注,商家\n");
+        } else {
+            writer.write("[");
+        }
+
+        long exported = 0;
+        boolean cancelled = false;
+        long from = filter.start;
+        int afterId = -1;
+        int rows;
+        do {
+            rows = 0;
+            try (Cursor c = dao.exportPage(from, filter.end, filter.type, filter.categoryId, afterId, PAGE_SIZE)) {
+                int id = c.getColumnIndexOrThrow("id");
+                int date = c.getColumnIndexOrThrow("date");
+                int type = c.getColumnIndexOrThrow("type");
+                int category = c.getColumnIndexOrThrow("category_name");
+                int amount = c.getColumnIndexOrThrow("amount");
+                int note = c.getColumnIndexOrThrow("note");
+                int payee = c.getColumnIndexOrThrow("payee");
+                while (c.moveToNext()) {
+                    from = c.getLong(date);
+                    afterId = c.getInt(id);
+                    if (format == Format.CSV) {
+                        writeCsvRow(writer, from, c.getInt(type), text(c, category),
+                                c.getLong(amount), text(c, note), text(c, payee));
+                    } else {
+                        writeJsonRow(writer, exported == 0, afterId, from, c.getInt(type),
+                                text(c, category), c.getLong(amount), text(c, note), text(c, payee));
+                    }
+                    rows++;
+                }
+            }
+            exported += rows;
+            if (cancel != null && cancel.isCanceled()) {
+                cancelled = true;
+                break;
+            }
+            if (listener != null && rows == PAGE_SIZE) listener.onProgress(exported, total);
+        } while (rows == PAGE_SIZE);
+
+        if (format == Format.JSON) writer.write(exported == 0 ? "]\n" : "\n]\n");
+        writer.flush();
+        if (listener != null && !cancelled) listener.onProgress(exported, total);
+        return new Result(exported, total, true, cancelled, null);
+    }
+
+    private static String text(Cursor c, int column) {
+        return c.isNull(column) ? null : c.getString(column);
+    }
+
+    private String formatDate(long millis) {
+        return SECONDS.format(Instant.ofEpochMilli(millis).atZone(zone));
+    }
+
+    // --- CSV：日期,类型,分类,金额,备注,商家 ---
+
+    private void writeCsvRow(Writer w, long date, int type, String category, long amount,
+                             String note, String payee) throws IOException {
+        w.write(formatDate(date));
+        w.write(type == 1 ? ",收入," : ",支出,");
+        writeCsvField(w, category);
+        w.write(',');
+        w.write(Money.toPlainString(amount));
+        w.write(',');
+        writeCsvField(w, note);
+        w.write(',');
+        writeCsvField(w, payee);
+        w.write('\n');
+    }
+
+    // 含逗号、引号或换行时用双引号包裹，引号写成 ""
+    static void writeCsvField(Writer w, String value) throws IOException {
+        if (value == null) return;
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char ch = value.charAt(i);
+            quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+        }
+        if (!quote) {
+            w.write(value);
+            return;
+        }
+        w.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '"') w.write('"');
+            w.write(ch);
+        }
+        w.write('"');
+    }
+
+    // --- JSON：对象数组，每行一个对象；金额为元 (两位小数以内的数字) ---
+
+    private void writeJsonRow(Writer w, boolean first, int id, long date, int type, String category,
+                              long amount, String note, String payee) throws IOException {
+        w.write(first ? "\n" : ",\n");
+        w.write("{\"id\":");
+        w.write(Integer.toString(id));
+        w.write(",\"date\":\"");
+        w.write(formatDate(date));
+        w.write("\",\"timestamp\":");
+        w.write(Long.toString(date));
+        w.write(type == 1 ? ",\"type\":\"income\"" : ",\"type\":\"expense\"");
+        w.write(",\"category\":");
+        writeJsonString(w, category);
+        w.write(",\"amount\":");
+        w.write(Money.toPlainString(amount));
+        w.write(",\"note\":");
+        writeJsonString(w, note);
+        w.write(",\"payee\":");
+        writeJsonString(w, payee);
+        w.write('}');
+    }
+
+    static void writeJsonString(Writer w, String value) throws IOException {
+        if (value == null) {
+            w.write("null");
+            return;
+        }
+        w.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            switch (ch) {
+                case '"': w.write("\\\""); break;
+                case '\\': w.write("\\\\"); break;
+                case '\n': w.write("\\n"); break;
+                case '\r': w.write("\\r"); break;
+                case '\t': w.write("\\t"); break;
+                default:
+                    if (ch < 0x20) {
+                        w.write(String.format("\\u%04x", (int) ch));
+                    } else {
+                        w.write(ch);
+                    }
+            }
+        }
+        w.write('"');
+    }
+}
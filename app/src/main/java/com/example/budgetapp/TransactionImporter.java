@@ -0,0 +1,242 @@
+package com.example.budgetapp;
+
+import com.example.budgetapp.database.AppDatabase;
+import com.example.budgetapp.database.Category;
+import com.example.budgetapp.database.CategoryDictionary;
+import com.example.budgetapp.database.Money;
+import com.example.budgetapp.database.Transaction;
+import com.example.budgetapp.database.TransactionDao;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量导入银行导出的 CSV / OFX 账单。
+ * 逐行流式读取，每 BATCH_SIZE 行用一次 insertAll 写入 (一个事务、一次变更通知)，
+ * 内存占用只与批大小有关，与文件大小无关。
+ */
+public class TransactionImporter {
+    public static final int BATCH_SIZE = 2000;
+
+    private static final DateTimeFormatter MINUTES = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final DateTimeFormatter SECONDS = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    public enum Format { CSV, OFX }
+
+    public interface ProgressListener {
+        // 每写入一批回调一次 (在导入线程上)
+        void onProgress(int imported, int skipped);
+    }
+
+    // 导入进度/结果：finished 为 true 时表示已结束，error 非空表示中途失败
+    public static final class Result {
+        public final int imported;
+        public final int skipped;   // 无法解析的行
+        public final boolean finished;
+        public final String error;
+
+        public Result(int imported, int skipped, boolean finished, String error) {
+            this.imported = imported;
+            this.skipped = skipped;
+            this.finished = finished;
+            this.error = error;
+        }
+    }
+
+    private final TransactionDao dao;
+    private final CategoryDictionary categories;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private List<Transaction> batch = new ArrayList<>(BATCH_SIZE);
+    private int imported;
+    private int skipped;
+
+    // 需在后台线程构造：会读入整张分类表
+    public TransactionImporter(AppDatabase db) {
+        this.dao = db.transactionDao();
+        this.categories = new CategoryDictionary(db.categoryDao());
+    }
+
+    // 在后台线程调用，每次导入使用一个新实例；不负责关闭 in
+    public Result importFrom(InputStream in, Format format, ProgressListener listener) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        if (format == Format.CSV) readCsv(reader, listener);
+        else readOfx(reader, listener);
+        flush(listener);
+        return new Result(imported, skipped, true, null);
+    }
+
+    // 中途失败时的结果：已提交的批次不会回滚，imported 为实际写入的行数
+    public Result failed(String error) {
+        return new Result(imported, skipped, true, error);
+    }
+
+    private void add(Transaction t, ProgressListener listener) {
+        batch.add(t);
+        if (batch.size() >= BATCH_SIZE) flush(listener);
+    }
+
+    private void flush(ProgressListener listener) {
+        if (!batch.isEmpty()) {
+            dao.insertAll(batch);
+            imported += batch.size();
+            batch = new ArrayList<>(BATCH_SIZE);
+        }
+        if (listener != null) listener.onProgress(imported, skipped);
+    }
+
+    // --- CSV：日期,类型,分类,金额[,备注[,商家]] (首行为表头时自动跳过) ---
+    // 日期支持 yyyy-MM-dd、yyyy-MM-dd HH:mm[:ss]、毫秒时间戳；
+    // 类型为 收入/支出、1/0，留空时按金额正负判断
+
+    // 按记录而不是按行读取：带引号的备注里可以有换行 (TransactionExporter 导出的就是这样)
+    private void readCsv(BufferedReader reader, ProgressListener listener) throws IOException {
+        List<String> cols;
+        boolean first = true;
+        while ((cols = readCsvRecord(reader)) != null) {
+            if (first) {
+                first = false;
+                String head = cols.get(0);
+                if (!head.isEmpty() && head.charAt(0) == '\uFEFF') cols.set(0, head = head.substring(1));
+                if (!head.isEmpty() && !Character.isDigit(head.charAt(0))) continue;   // 表头
+            }
+            if (cols.size() == 1 && cols.get(0).trim().isEmpty()) continue;
+            Transaction t = parseCsvRow(cols);
+            if (t == null) skipped++;
+            else add(t, listener);
+        }
+    }
+
+    private Transaction parseCsvRow(List<String> cols) {
+        if (cols.size() < 4) return null;
+        try {
+            long date = parseDate(cols.get(0));
+            long amount = Money.parse(cols.get(3));
+            String typeText = cols.get(1).trim();
+            int type;
+            if (typeText.isEmpty()) type = amount >= 0 ? 1 : 0;
+            else type = typeText.equals("1") || typeText.equals("收入") || typeText.equalsIgnoreCase("income") ? 1 : 0;
+            String category = cols.get(2).trim();
+            if (category.isEmpty()) category = type == 1 ? Category.INCOME : Category.OTHER;
+            Transaction t = new Transaction(date, type, categories.idOf(category, type), Math.abs(amount));
+            if (cols.size() > 4) t.note = emptyToNull(cols.get(4));
+            if (cols.size() > 5) t.payee = emptyToNull(cols.get(5));
+            return t;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String emptyToNull(String text) {
+        String s = text.trim();
+        return s.isEmpty() ? null : s;
+    }
+
+    private long parseDate(String text) {
+        String s = text.trim();
+        if (s.indexOf('-') < 0) return Long.parseLong(s);   // 毫秒时间戳
+        if (s.length() == 10) return LocalDate.parse(s).atStartOfDay(zone).toInstant().toEpochMilli();
+        DateTimeFormatter pattern = s.length() == 16 ? MINUTES : SECONDS;
+        return LocalDateTime.parse(s, pattern).atZone(zone).toInstant().toEpochMilli();
+    }
+
+    // 读一条记录并按逗号切分，支持双引号包裹及 "" 转义；引号内的逗号、换行属于字段内容。
+    // 引号外的 \r 忽略 (兼容 \r\n 换行)。已到文件末尾时返回 null
+    static List<String> readCsvRecord(Reader in) throws IOException {
+        int c = in.read();
+        if (c < 0) return null;
+        List<String> cols = new ArrayList<>();
+        StringBuilder cur = new StringBuilder();
+        boolean quoted = false;
+        boolean justClosed = false;     // 上一个字符是收尾的引号：紧跟的引号是转义的 ""
+        for (; c >= 0; c = in.read()) {
+            if (quoted) {
+                if (c == '"') {
+                    quoted = false;
+                    justClosed = true;
+                    continue;
+                }
+                cur.append((char) c);
+            } else if (c == '"') {
+                if (justClosed) cur.append('"');
+                quoted = true;
+            } else if (c == ',') {
+                cols.add(cur.toString());
+                cur.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                cur.append((char) c);
+            }
+            justClosed = false;
+        }
+        cols.add(cur.toString());
+        return cols;
+    }
+
+    // --- OFX：逐个 <STMTTRN> 读取 DTPOSTED / TRNAMT / NAME / MEMO，SGML 与 XML 两种写法都支持 ---
+
+    private void readOfx(BufferedReader reader, ProgressListener listener) throws IOException {
+        String line;
+        boolean inTxn = false;
+        String posted = null;
+        String amount = null;
+        String name = null;
+        String memo = null;
+        while ((line = reader.readLine()) != null) {
+            for (String piece : line.split("<")) {
+                int close = piece.indexOf('>');
+                if (close < 0) continue;
+                String tag = piece.substring(0, close).trim().toUpperCase();
+                String value = piece.substring(close + 1).trim();
+                if (tag.equals("STMTTRN")) {
+                    inTxn = true;
+                    posted = null;
+                    amount = null;
+                    name = null;
+                    memo = null;
+                } else if (tag.equals("/STMTTRN")) {
+                    if (inTxn) {
+                        Transaction t = parseOfxRow(posted, amount, name, memo);
+                        if (t == null) skipped++;
+                        else add(t, listener);
+                    }
+                    inTxn = false;
+                } else if (inTxn && tag.equals("DTPOSTED")) {
+                    posted = value;
+                } else if (inTxn && tag.equals("TRNAMT")) {
+                    amount = value;
+                } else if (inTxn && tag.equals("NAME")) {
+                    name = value;
+                } else if (inTxn && tag.equals("MEMO")) {
+                    memo = value;
+                }
+            }
+        }
+    }
+
+    private Transaction parseOfxRow(String posted, String amountText, String name, String memo) {
+        if (posted == null || amountText == null || posted.length() < 8) return null;
+        try {
+            LocalDate day = LocalDate.parse(posted.substring(0, 8), DateTimeFormatter.BASIC_ISO_DATE);
+            long amount = Money.parse(amountText);
+            int type = amount >= 0 ? 1 : 0;
+            Transaction t = new Transaction(day.atStartOfDay(zone).toInstant().toEpochMilli(),
+                    type, categories.idOf(type == 1 ? Category.INCOME : Category.OTHER, type), Math.abs(amount));
+            if (name != null) t.payee = emptyToNull(name);
+            if (memo != null) t.note = emptyToNull(memo);
+            return t;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
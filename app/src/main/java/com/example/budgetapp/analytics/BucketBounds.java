@@ -0,0 +1,97 @@
+package com.example.budgetapp.analytics;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * 分桶边界：升序的 n+1 个边界值定义 n 个左闭右开的桶 [bounds[i], bounds[i+1])。
+ * 单位由调用方决定——原始账单用 epoch 毫秒，按天汇总用 epochDay。
+ * 边界预先算好，归桶只是一次二分查找，不为每行创建日期对象。
+ */
+public final class BucketBounds {
+    private final long[] bounds;
+
+    private BucketBounds(long[] bounds) {
+        this.bounds = bounds;
+    }
+
+    public static BucketBounds of(long... bounds) {
+        if (bounds.length < 2) throw new IllegalArgumentException("至少需要两个边界");
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i] <= bounds[i - 1]) throw new IllegalArgumentException("边界必须严格递增");
+        }
+        return new BucketBounds(bounds.clone());
+    }
+
+    // 各日期在 zone 中零点的时间戳
+    public static BucketBounds ofEpochMillis(LocalDate[] edges, ZoneId zone) {
+        long[] bounds = new long[edges.length];
+        for (int i = 0; i < edges.length; i++) {
+            bounds[i] = edges[i].atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+        return of(bounds);
+    }
+
+    public static BucketBounds ofEpochDays(LocalDate[] edges) {
+        long[] bounds = new long[edges.length];
+        for (int i = 0; i < edges.length; i++) {
+            bounds[i] = edges[i].toEpochDay();
+        }
+        return of(bounds);
+    }
+
+    // --- 常用的边界日期 ---
+
+    // 一年 12 个月：13 个边界
+    public static LocalDate[] monthsOfYear(int year) {
+        LocalDate[] edges = new LocalDate[13];
+        for (int i = 0; i <= 12; i++) {
+            edges[i] = LocalDate.of(year, 1, 1).plusMonths(i);
+        }
+        return edges;
+    }
+
+    // 一个月的每一天
+    public static LocalDate[] daysOfMonth(YearMonth month) {
+        return consecutiveDays(month.atDay(1), month.lengthOfMonth());
+    }
+
+    // 从周一开始的 7 天
+    public static LocalDate[] daysOfWeek(LocalDate monday) {
+        return consecutiveDays(monday, 7);
+    }
+
+    private static LocalDate[] consecutiveDays(LocalDate first, int count) {
+        LocalDate[] edges = new LocalDate[count + 1];
+        for (int i = 0; i <= count; i++) {
+            edges[i] = first.plusDays(i);
+        }
+        return edges;
+    }
+
+    public int size() {
+        return bounds.length - 1;
+    }
+
+    public long start() {
+        return bounds[0];
+    }
+
+    public long end() {
+        return bounds[bounds.length - 1];
+    }
+
+    // 第 i 个桶的起点
+    public long bound(int i) {
+        return bounds[i];
+    }
+
+    // key 所在的桶，超出 [start, end) 返回 -1
+    public int indexOf(long key) {
+        if (key < bounds[0] || key >= bounds[bounds.length - 1]) return -1;
+        int i = Arrays.binarySearch(bounds, key);
+        return i >= 0 ? i : -i - 2;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.budgetapp.analytics;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 时间戳 -> 本地日期 epochDay (与 LocalDate.toEpochDay 一致)，不创建任何对象。
+ * 预先把时区在 [1900, 2100) 内的偏移变化展开成数组，查询只是一次二分查找；
+ * 固定偏移的时区 (如 Asia/Shanghai 近年) 直接相加。范围之外退回 ZoneRules。
+ */
+public final class DayIndex {
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final long LOWER = Instant.parse("1900-01-01T00:00:00Z").toEpochMilli();
+    private static final long UPPER = Instant.parse("2100-01-01T00:00:00Z").toEpochMilli();
+    // 时区极少变化，current() 每秒最多核对一次系统时区
+    private static final long RECHECK_MILLIS = 1000;
+
+    private static volatile DayIndex current;
+    private static volatile long checkedAt;
+
+    public final ZoneId zone;
+    private final ZoneRules rules;
+    private final long[] transitions;   // 偏移变化的时刻 (毫秒)，升序
+    private final long[] offsets;       // offsets[i] 适用于 [transitions[i-1], transitions[i])，单位毫秒
+
+    private DayIndex(ZoneId zone) {
+        this.zone = zone;
+        this.rules = zone.getRules();
+        List<ZoneOffsetTransition> list = new ArrayList<>();
+        ZoneOffsetTransition t = rules.nextTransition(Instant.ofEpochMilli(LOWER));
+        while (t != null && t.toEpochSecond() * 1000 < UPPER) {
+            list.add(t);
+            t = rules.nextTransition(t.getInstant());
+        }
+        transitions = new long[list.size()];
+        offsets = new long[list.size() + 1];
+        offsets[0] = rules.getOffset(Instant.ofEpochMilli(LOWER)).getTotalSeconds() * 1000L;
+        for (int i = 0; i < list.size(); i++) {
+            transitions[i] = list.get(i).toEpochSecond() * 1000;
+            offsets[i + 1] = list.get(i).getOffsetAfter().getTotalSeconds() * 1000L;
+        }
+    }
+
+    public static DayIndex of(ZoneId zone) {
+        DayIndex index = current;
+        return index != null && index.zone.equals(zone) ? index : new DayIndex(zone);
+    }
+
+    // 系统时区的实例 (缓存)
+    public static DayIndex current() {
+        DayIndex index = current;
+        long now = System.currentTimeMillis();
+        if (index == null || now - checkedAt > RECHECK_MILLIS) {
+            ZoneId zone = ZoneId.systemDefault();
+            if (index == null || !index.zone.equals(zone)) {
+                index = new DayIndex(zone);
+                current = index;
+            }
+            checkedAt = now;
+        }
+        return index;
+    }
+
+    public long offsetMillis(long millis) {
+        if (millis < LOWER || millis >= UPPER) {
+            return rules.getOffset(Instant.ofEpochMilli(millis)).getTotalSeconds() * 1000L;
+        }
+        if (transitions.length == 0) return offsets[0];
+        int i = Arrays.binarySearch(transitions, millis);
+        return offsets[i >= 0 ? i + 1 : -i - 1];
+    }
+
+    public long epochDay(long millis) {
+        return Math.floorDiv(millis + offsetMillis(millis), MILLIS_PER_DAY);
+    }
+
+    // 某天零点的时间戳 (会创建对象，不要用在逐行循环里)
+    public long startOfDay(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.budgetapp.analytics;
+
+/**
+ * 一个周期的收支累加器：每个桶一格 long (单位：分)。分类合计直接读 daily_category_totals，不在这里累加。
+ * 不依赖 Android，可直接在 JVM 上测试与基准测量。非线程安全。
+ */
+public final class PeriodAccumulator {
+    public static final int TYPE_EXPENSE = 0;
+    public static final int TYPE_INCOME = 1;
+
+    public final BucketBounds bounds;
+    public final long[] income;
+    public final long[] expense;
+    private long totalIncome;
+    private long totalExpense;
+
+    public PeriodAccumulator(BucketBounds bounds) {
+        this.bounds = bounds;
+        this.income = new long[bounds.size()];
+        this.expense = new long[bounds.size()];
+    }
+
+    // 累加一笔账单；返回所在桶，区间外返回 -1 且不计入
+    public int add(long key, int type, long amount) {
+        int bucket = bounds.indexOf(key);
+        if (bucket < 0) return -1;
+        if (type == TYPE_INCOME) {
+            income[bucket] += amount;
+            totalIncome += amount;
+        } else {
+            expense[bucket] += amount;
+            totalExpense += amount;
+        }
+        return bucket;
+    }
+
+    // 累加一行已汇总的收支 (如按天汇总表)
+    public int addTotals(long key, long incomeAmount, long expenseAmount) {
+        int bucket = bounds.indexOf(key);
+        if (bucket < 0) return -1;
+        income[bucket] += incomeAmount;
+        expense[bucket] += expenseAmount;
+        totalIncome += incomeAmount;
+        totalExpense += expenseAmount;
+        return bucket;
+    }
+
+    public long net(int bucket) {
+        return income[bucket] - expense[bucket];
+    }
+
+    public long totalIncome() {
+        return totalIncome;
+    }
+
+    public long totalExpense() {
+        return totalExpense;
+    }
+}
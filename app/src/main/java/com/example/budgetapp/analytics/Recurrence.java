@@ -0,0 +1,55 @@
+package com.example.budgetapp.analytics;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * 重复规则的展开：从 startDay 起每 interval 周 / 月 / 年发生一次，直到 endDay (不含)。
+ * 月、年重复总是从首次日期按倍数推算 (1 月 31 日 -> 2 月 29 日 -> 3 月 31 日)，小月取月末，不会漂移。
+ * 只展开调用方给出的区间，不依赖 Android。
+ */
+public final class Recurrence {
+    public static final int WEEKLY = 0;
+    public static final int MONTHLY = 1;
+    public static final int YEARLY = 2;
+
+    public final long startDay;     // epochDay
+    public final int frequency;
+    public final int interval;
+    public final long endDay;       // 不含；Long.MAX_VALUE 表示不结束
+
+    public Recurrence(long startDay, int frequency, int interval, long endDay) {
+        if (interval < 1) throw new IllegalArgumentException("interval 必须为正数");
+        if (frequency < WEEKLY || frequency > YEARLY) throw new IllegalArgumentException("未知的频率: " + frequency);
+        this.startDay = startDay;
+        this.frequency = frequency;
+        this.interval = interval;
+        this.endDay = endDay;
+    }
+
+    // 依次回调 [fromDay, toDay) 内的每个发生日
+    public void forEach(long fromDay, long toDay, LongConsumer day) {
+        long from = Math.max(fromDay, startDay);
+        long to = Math.min(toDay, endDay);
+        if (from >= to) return;
+
+        if (frequency == WEEKLY) {
+            long step = 7L * interval;
+            long k = (from - startDay + step - 1) / step;
+            for (long d = startDay + k * step; d < to; d += step) day.accept(d);
+            return;
+        }
+
+        // 先跳到 from 之前最近的一次，再逐次推算
+        LocalDate start = LocalDate.ofEpochDay(startDay);
+        ChronoUnit unit = frequency == MONTHLY ? ChronoUnit.MONTHS : ChronoUnit.YEARS;
+        long k = Math.max(0, unit.between(start, LocalDate.ofEpochDay(from)) / interval - 1);
+        while (true) {
+            long d = start.plus(k * interval, unit).toEpochDay();
+            if (d >= to) return;
+            if (d >= from) day.accept(d);
+            k++;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.budgetapp.analytics;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * 长周期趋势：由按天汇总构建的 日 / 周 / 月 三级分辨率序列。
+ * 取样时按可见范围选最细且桶数不过多的级别，再用 LTTB (Largest-Triangle-Three-Buckets)
+ * 降采样到图表宽度对应的点数，点数只取决于像素宽度，与跨度无关；内存只有各级别的 long 数组
+ * (十年约 3650 天)。不依赖 Android，可直接在 JVM 上测试。构建后只读，可跨线程共享。
+ */
+public final class TrendSeries {
+    public static final int LEVEL_DAY = 0;
+    public static final int LEVEL_WEEK = 1;
+    public static final int LEVEL_MONTH = 2;
+
+    public static final int INCOME = 0;
+    public static final int EXPENSE = 1;
+    public static final int NET = 2;
+
+    // 可见桶数不超过 maxPoints 的这个倍数时用更细的级别，再由 LTTB 压到 maxPoints
+    static final int OVERSAMPLE = 4;
+
+    public final long startDay;     // [startDay, endDay)，epochDay
+    public final long endDay;
+    private final BucketBounds[] bounds;
+    private final long[][][] values;    // [级别][INCOME / EXPENSE / NET][桶]，单位：分
+
+    private TrendSeries(long startDay, long endDay, BucketBounds[] bounds, long[][][] values) {
+        this.startDay = startDay;
+        this.endDay = endDay;
+        this.bounds = bounds;
+        this.values = values;
+    }
+
+    public static Builder builder(long startDay, long endDay) {
+        return new Builder(startDay, endDay);
+    }
+
+    // 按天累加 (同一天可多次 add)，build 时汇总出周、月两级
+    public static final class Builder {
+        private final long startDay;
+        private final long endDay;
+        private final long[] income;
+        private final long[] expense;
+
+        private Builder(long startDay, long endDay) {
+            if (endDay <= startDay) throw new IllegalArgumentException("区间至少一天");
+            this.startDay = startDay;
+            this.endDay = endDay;
+            this.income = new long[Math.toIntExact(endDay - startDay)];
+            this.expense = new long[income.length];
+        }
+
+        // 区间外的日期忽略
+        public Builder add(long day, long incomeAmount, long expenseAmount) {
+            if (day < startDay || day >= endDay) return this;
+            income[(int) (day - startDay)] += incomeAmount;
+            expense[(int) (day - startDay)] += expenseAmount;
+            return this;
+        }
+
+        public TrendSeries build() {
+            long[] dayEdges = new long[income.length + 1];
+            for (int i = 0; i < dayEdges.length; i++) dayEdges[i] = startDay + i;
+            BucketBounds[] bounds = {
+                    BucketBounds.of(dayEdges), weekBounds(startDay, endDay), monthBounds(startDay, endDay)};
+            long[][][] values = new long[bounds.length][][];
+            values[LEVEL_DAY] = withNet(income, expense);
+            for (int level = LEVEL_WEEK; level <= LEVEL_MONTH; level++) {
+                PeriodAccumulator acc = new PeriodAccumulator(bounds[level]);
+                for (int i = 0; i < income.length; i++) {
+                    if (income[i] != 0 || expense[i] != 0) acc.addTotals(startDay + i, income[i], expense[i]);
+                }
+                values[level] = withNet(acc.income, acc.expense);
+            }
+            return new TrendSeries(startDay, endDay, bounds, values);
+        }
+
+        private static long[][] withNet(long[] income, long[] expense) {
+            long[] net = new long[income.length];
+            for (int i = 0; i < net.length; i++) net[i] = income[i] - expense[i];
+            return new long[][]{income, expense, net};
+        }
+    }
+
+    // 周从周一开始，首尾两周可能不完整
+    static BucketBounds weekBounds(long startDay, long endDay) {
+        // epochDay 0 (1970-01-01) 是周四
+        long monday = startDay - Math.floorMod(startDay + 3, 7) + 7;
+        long[] edges = new long[(int) ((endDay - startDay) / 7) + 3];
+        int n = 0;
+        edges[n++] = startDay;
+        for (long d = monday; d < endDay; d += 7) edges[n++] = d;
+        edges[n++] = endDay;
+        return BucketBounds.of(Arrays.copyOf(edges, n));
+    }
+
+    // 按自然月，首尾两月可能不完整
+    static BucketBounds monthBounds(long startDay, long endDay) {
+        LocalDate first = LocalDate.ofEpochDay(startDay).withDayOfMonth(1).plusMonths(1);
+        long[] edges = new long[(int) ((endDay - startDay) / 28) + 3];
+        int n = 0;
+        edges[n++] = startDay;
+        for (LocalDate d = first; d.toEpochDay() < endDay; d = d.plusMonths(1)) edges[n++] = d.toEpochDay();
+        edges[n++] = endDay;
+        return BucketBounds.of(Arrays.copyOf(edges, n));
+    }
+
+    // [fromDay, toDay) 应使用的级别：最细的、可见桶数不超过 maxPoints * OVERSAMPLE 的级别
+    public int level(long fromDay, long toDay, int maxPoints) {
+        for (int level = LEVEL_DAY; level < LEVEL_MONTH; level++) {
+            BucketBounds b = bounds[level];
+            if (bucketAt(b, toDay - 1) - bucketAt(b, fromDay) + 1 <= (long) maxPoints * OVERSAMPLE) return level;
+        }
+        return LEVEL_MONTH;
+    }
+
+    public int bucketCount(int level) {
+        return bounds[level].size();
+    }
+
+    // 降采样结果：x 为桶起点 (epochDay)，y 单位：分。数组按需扩容，可跨多次取样复用
+    public static final class Sample {
+        public int level;
+        public int size;
+        public long[] x = new long[0];
+        public long[] y = new long[0];
+
+        void reset(int capacity) {
+            if (x.length < capacity) {
+                x = new long[capacity];
+                y = new long[capacity];
+            }
+            size = 0;
+        }
+
+        void add(long xValue, long yValue) {
+            x[size] = xValue;
+            y[size] = yValue;
+            size++;
+        }
+    }
+
+    // 取 [fromDay, toDay) 内 series 的至多 maxPoints 个点。两侧各多带一个桶，拖动时线条不会断在边缘
+    public void sample(int series, long fromDay, long toDay, int maxPoints, Sample out) {
+        maxPoints = Math.max(maxPoints, 3);
+        int level = level(fromDay, toDay, maxPoints);
+        BucketBounds b = bounds[level];
+        int from = Math.max(0, bucketAt(b, fromDay) - 1);
+        int to = Math.min(b.size(), bucketAt(b, toDay - 1) + 2);
+        out.level = level;
+        lttb(b, values[level][series], from, to, maxPoints, out);
+    }
+
+    // key 所在的桶，超出范围时取最近的一端
+    private static int bucketAt(BucketBounds b, long key) {
+        if (key < b.start()) return 0;
+        if (key >= b.end()) return b.size() - 1;
+        return b.indexOf(key);
+    }
+
+    // LTTB：首尾两点保留，中间均分为 threshold - 2 组，每组取与前一个选中点、
+    // 下一组平均点构成三角形面积最大的点，峰值与拐点不会被平均掉
+    static void lttb(BucketBounds x, long[] y, int from, int to, int threshold, Sample out) {
+        int n = to - from;
+        out.reset(Math.min(n, threshold));
+        if (n <= threshold) {
+            for (int i = from; i < to; i++) out.add(x.bound(i), y[i]);
+            return;
+        }
+
+        double every = (double) (n - 2) / (threshold - 2);
+        int a = from;
+        out.add(x.bound(a), y[a]);
+        for (int i = 0; i < threshold - 2; i++) {
+            int avgStart = from + (int) ((i + 1) * every) + 1;
+            int avgEnd = Math.min(from + (int) ((i + 2) * every) + 1, to);
+            double avgX = 0;
+            double avgY = 0;
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgX += x.bound(j);
+                avgY += y[j];
+            }
+            avgX /= avgEnd - avgStart;
+            avgY /= avgEnd - avgStart;
+
+            int rangeStart = from + (int) (i * every) + 1;
+            int rangeEnd = from + (int) ((i + 1) * every) + 1;
+            double ax = x.bound(a);
+            double ay = y[a];
+            double maxArea = -1;
+            int next = rangeStart;
+            for (int j = rangeStart; j < rangeEnd; j++) {
+                double area = Math.abs((ax - avgX) * (y[j] - ay) - (ax - x.bound(j)) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = j;
+                }
+            }
+            out.add(x.bound(next), y[next]);
+            a = next;
+        }
+        out.add(x.bound(to - 1), y[to - 1]);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.budgetapp.concurrent;
+
+import android.util.Log;
+
+/**
+ * 全局线程布局，线程数按 CPU 核数确定：
+ * <ul>
+ * <li>writer：唯一的写线程，所有写入 (单条保存、导入、备份检查点、恢复) 在这里串行执行，顺序即提交顺序</li>
+ * <li>reads：Room 的查询线程池 (LiveData / 分页查询、InvalidationTracker 刷新)</li>
+ * <li>analytics：低优先级的派生数据计算 (日历、图表、预取)，再忙也不会占用写线程</li>
+ * </ul>
+ */
+public final class AppExecutors {
+    private static final String TAG = "AppExecutors";
+    private static volatile AppExecutors INSTANCE;
+
+    public final MeteredExecutor writer;
+    public final MeteredExecutor reads;
+    public final MeteredExecutor analytics;
+
+    private AppExecutors(int cores) {
+        // 保存排队超过 100ms 即可感知，记警告
+        writer = new MeteredExecutor("db-writer", 1, Thread.NORM_PRIORITY, 100);
+        reads = new MeteredExecutor("db-read", clamp(cores / 2, 2, 4), Thread.NORM_PRIORITY, 250);
+        analytics = new MeteredExecutor("analytics", clamp(cores / 4, 2, 3), Thread.NORM_PRIORITY - 2, 1000);
+    }
+
+    public static AppExecutors get() {
+        if (INSTANCE == null) {
+            synchronized (AppExecutors.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new AppExecutors(Runtime.getRuntime().availableProcessors());
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    // 把三个线程池的排队与延迟统计写进日志 (调试、性能排查用)；界面退到后台时由 MainActivity 调用
+    public void logStats() {
+        Log.i(TAG, writer.stats().toString());
+        Log.i(TAG, reads.stats().toString());
+        Log.i(TAG, analytics.stats().toString());
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.budgetapp.concurrent;
+
+import android.util.Log;
+
+import java.util.Locale;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 固定线程数的线程池，附带排队深度与延迟统计：
+ * 等待时间 = 提交到开始执行，运行时间 = 开始到结束。等待超过 slowWaitMillis 的任务记一条警告。
+ */
+public final class MeteredExecutor extends ThreadPoolExecutor {
+    private static final String TAG = "MeteredExecutor";
+
+    private final String name;
+    private final long slowWaitNanos;
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong runNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    MeteredExecutor(String name, int threads, int priority, long slowWaitMillis) {
+        super(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory(name, priority));
+        this.name = name;
+        this.slowWaitNanos = TimeUnit.MILLISECONDS.toNanos(slowWaitMillis);
+        allowCoreThreadTimeOut(true);   // 空闲时不占线程
+    }
+
+    private static ThreadFactory threadFactory(String name, int priority) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setPriority(priority);
+            return t;
+        };
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        long submitted = System.nanoTime();
+        super.execute(() -> {
+            long started = System.nanoTime();
+            long wait = started - submitted;
+            if (wait > slowWaitNanos) {
+                Log.w(TAG, name + " 任务排队 " + TimeUnit.NANOSECONDS.toMillis(wait) + "ms，队列剩余 " + getQueue().size());
+            }
+            try {
+                command.run();
+            } finally {
+                waitNanos.addAndGet(wait);
+                runNanos.addAndGet(System.nanoTime() - started);
+                maxWaitNanos.accumulateAndGet(wait, Math::max);
+                completed.incrementAndGet();
+            }
+        });
+    }
+
+    // 当前排队 (未开始) 的任务数
+    public int queueDepth() {
+        return getQueue().size();
+    }
+
+    public Stats stats() {
+        return new Stats(name, queueDepth(), getActiveCount(), completed.get(),
+                waitNanos.get(), runNanos.get(), maxWaitNanos.get());
+    }
+
+    // 统计快照，时间单位：毫秒
+    public static final class Stats {
+        public final String name;
+        public final int queued;
+        public final int active;
+        public final long completed;
+        public final double avgWaitMs;
+        public final double avgRunMs;
+        public final double maxWaitMs;
+
+        Stats(String name, int queued, int active, long completed, long waitNanos, long runNanos, long maxWaitNanos) {
+            this.name = name;
+            this.queued = queued;
+            this.active = active;
+            this.completed = completed;
+            this.avgWaitMs = completed == 0 ? 0 : waitNanos / 1e6 / completed;
+            this.avgRunMs = completed == 0 ? 0 : runNanos / 1e6 / completed;
+            this.maxWaitMs = maxWaitNanos / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%s: queued=%d active=%d done=%d wait avg=%.1fms max=%.1fms run avg=%.1fms", name, queued, active, completed, avgWaitMs, maxWaitMs, avgRunMs);
+        }
+    }
+}
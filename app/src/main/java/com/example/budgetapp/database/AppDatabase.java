@@ -1,28 +1,298 @@
 package com.example.budgetapp.database;
 
 import android.content.Context;
+import android.content.SharedPreferences;
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import com.example.budgetapp.concurrent.AppExecutors;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
 
-@Database(entities = {Transaction.class}, version = 1, exportSchema = false)
+@Database(entities = {Transaction.class, DailyTotal.class, DailyCategoryTotal.class, ChangeLogEntry.class,
+        Category.class, TransactionFts.class, RecurringRule.class},
+        version = 11, exportSchema = false)
 public abstract class AppDatabase extends RoomDatabase {
     public abstract TransactionDao transactionDao();
+    public abstract DailyTotalDao dailyTotalDao();
+    public abstract CategoryDao categoryDao();
+    public abstract RecurringRuleDao recurringRuleDao();
 
     private static volatile AppDatabase INSTANCE;
-    public static final ExecutorService databaseWriteExecutor = Executors.newFixedThreadPool(4);
+
+    // v1 -> v2：为 transactions 建立 date / (type, date) / (category, date) 索引
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            createTransactionIndices(db);
+        }
+    };
+
+    // v2 -> v3：新增按天汇总表及维护触发器 (数据在 MIGRATION_6_7 中按最终结构统一重建)
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `daily_totals` (`day_key` INTEGER NOT NULL, "
+                    + "`income` REAL NOT NULL, `expense` REAL NOT NULL, `count` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`day_key`))");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `daily_category_totals` (`day_key` INTEGER NOT NULL, "
+                    + "`category` TEXT NOT NULL, `expense` REAL NOT NULL, `count` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`day_key`, `category`))");
+            DailyRollup.createTriggers(db);
+        }
+    };
+
+    // v3 -> v4：金额由 double (元) 改为 long (分)。SQLite 不能修改列类型，需重建表
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            DailyRollup.dropTriggers(db);
+            db.execSQL("CREATE TABLE IF NOT EXISTS `transactions_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`date` INTEGER NOT NULL, `type` INTEGER NOT NULL, `category` TEXT, `amount` INTEGER NOT NULL)");
+            db.execSQL("INSERT INTO transactions_new (id, date, type, category, amount) "
+                    + "SELECT id, date, type, category, CAST(ROUND(amount * 100) AS INTEGER) FROM transactions");
+            db.execSQL("DROP TABLE transactions");
+            db.execSQL("ALTER TABLE transactions_new RENAME TO transactions");
+            createTransactionIndices(db);
+
+            db.execSQL("DROP TABLE IF EXISTS daily_totals");
+            db.execSQL("DROP TABLE IF EXISTS daily_category_totals");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `daily_totals` (`day_key` INTEGER NOT NULL, "
+                    + "`income` INTEGER NOT NULL, `expense` INTEGER NOT NULL, `count` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`day_key`))");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `daily_category_totals` (`day_key` INTEGER NOT NULL, "
+                    + "`category` TEXT NOT NULL, `expense` INTEGER NOT NULL, `count` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`day_key`, `category`))");
+            DailyRollup.createTriggers(db);
+        }
+    };
+
+    // v4 -> v5：新增变更日志及其触发器 (已有数据由下一次完整备份覆盖)
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `change_log` (`seq` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`op` INTEGER NOT NULL, `row_id` INTEGER NOT NULL, `date` INTEGER NOT NULL, "
+                    + "`type` INTEGER NOT NULL, `category` TEXT, `amount` INTEGER NOT NULL)");
+            ChangeJournal.createTriggers(db);
+        }
+    };
+
+    // v5 -> v6：transactions 新增 day_key 列并回填；变更日志不再记录只改了 day_key 的更新
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE transactions ADD COLUMN `day_key` INTEGER NOT NULL DEFAULT 0");
+            ChangeJournal.dropTriggers(db);
+            ChangeJournal.createTriggers(db);
+            DailyRollup.refreshDayKeys(db);
+            DailyRollup.createDayKeyTriggers(db);
+        }
+    };
+
+    // v6 -> v7：分类改为字典表 + 整数 id。已有的分类名写入 categories，
+    // transactions / change_log 的 category 文本列换成 category_id (minSdk 36 的 SQLite 支持 DROP COLUMN)，
+    // 按天分类汇总表改以 category_id 为键后重建
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            DailyRollup.dropTriggers(db);
+            ChangeJournal.dropTriggers(db);
+
+            db.execSQL("CREATE TABLE IF NOT EXISTS `categories` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`name` TEXT NOT NULL, `type` INTEGER NOT NULL)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_categories_name` ON `categories` (`name`)");
+            seedCategories(db);
+            db.execSQL("INSERT OR IGNORE INTO categories (name, type) SELECT category, MAX(type) FROM transactions "
+                    + "WHERE TRIM(IFNULL(category, '')) != '' GROUP BY category ORDER BY MIN(id)");
+
+            String categoryId = "(SELECT id FROM categories WHERE name = "
+                    + "CASE WHEN TRIM(IFNULL(category, '')) = '' THEN '" + Category.OTHER + "' ELSE category END)";
+            db.execSQL("ALTER TABLE transactions ADD COLUMN `category_id` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("UPDATE transactions SET category_id = " + categoryId);
+            db.execSQL("DROP INDEX IF EXISTS `index_transactions_category_date`");
+            db.execSQL("ALTER TABLE transactions DROP COLUMN `category`");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_transactions_category_id_date` "
+                    + "ON `transactions` (`category_id`, `date`)");
+
+            db.execSQL("ALTER TABLE change_log ADD COLUMN `category_id` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("UPDATE change_log SET category_id = " + categoryId);
+            db.execSQL("ALTER TABLE change_log DROP COLUMN `category`");
+
+            db.execSQL("DROP TABLE IF EXISTS daily_category_totals");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `daily_category_totals` (`day_key` INTEGER NOT NULL, "
+                    + "`category_id` INTEGER NOT NULL, `expense` INTEGER NOT NULL, `count` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`day_key`, `category_id`))");
+
+            DailyRollup.createTriggers(db);
+            ChangeJournal.createTriggers(db);
+            DailyRollup.rebuild(db);
+        }
+    };
+
+    // v7 -> v8：账单新增 备注 / 商家 两列 (变更日志同步记录)，并建立全文检索表
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            ChangeJournal.dropTriggers(db);
+            db.execSQL("ALTER TABLE transactions ADD COLUMN `note` TEXT");
+            db.execSQL("ALTER TABLE transactions ADD COLUMN `payee` TEXT");
+            db.execSQL("ALTER TABLE change_log ADD COLUMN `note` TEXT");
+            db.execSQL("ALTER TABLE change_log ADD COLUMN `payee` TEXT");
+            ChangeJournal.createTriggers(db);
+
+            // 与 Room 按 TransactionFts 生成的建表语句逐字一致 (分词参数带反引号)，否则打开时的 FtsTableInfo 校验不通过
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `transactions_fts` "
+                    + "USING FTS4(`category` TEXT, `note` TEXT, `payee` TEXT, tokenize=icu `zh_CN`)");
+            TransactionSearch.rebuild(db);
+            TransactionSearch.createTriggers(db);
+        }
+    };
+
+    // v8 -> v9：改日期的更新在变更日志里额外记一条旧行的删除，界面据此得知被移走的那天
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            ChangeJournal.dropTriggers(db);
+            ChangeJournal.createTriggers(db);
+        }
+    };
+
+    // v9 -> v10：新增重复记账规则表
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `recurring_rules` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`type` INTEGER NOT NULL, `category_id` INTEGER NOT NULL, `amount` INTEGER NOT NULL, "
+                    + "`note` TEXT, `payee` TEXT, `frequency` INTEGER NOT NULL, `interval` INTEGER NOT NULL, "
+                    + "`start_day` INTEGER NOT NULL, `end_day` INTEGER, `materialized_through` INTEGER NOT NULL)");
+        }
+    };
+
+    // v10 -> v11：触发器里的 day_key 改为向下取整 (1970 年以前的账单原先算到后一天)，重建触发器后重算 day_key 与汇总表
+    static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            DailyRollup.dropTriggers(db);
+            DailyRollup.dropDayKeyTriggers(db);
+            DailyRollup.refreshDayKeys(db);
+            DailyRollup.rebuild(db);
+            DailyRollup.createTriggers(db);
+            DailyRollup.createDayKeyTriggers(db);
+        }
+    };
+
+    // 按版本顺序的全部迁移，测试里也用它从 v1 升级
+    static final Migration[] ALL_MIGRATIONS = {MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5,
+            MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9, MIGRATION_9_10, MIGRATION_10_11};
+
+    // 默认分类 (与原来记账弹窗里写死的选项一致)
+    private static void seedCategories(SupportSQLiteDatabase db) {
+        db.execSQL("INSERT OR IGNORE INTO categories (name, type) VALUES "
+                + "('" + Category.INCOME + "', 1), ('饮食', 0), ('娱乐', 0), ('教育', 0), ('网购', 0), "
+                + "('" + Category.OTHER + "', 0)");
+    }
+
+    private static void createTransactionIndices(SupportSQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS `index_transactions_date` ON `transactions` (`date`)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS `index_transactions_type_date` ON `transactions` (`type`, `date`)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS `index_transactions_category_date` ON `transactions` (`category`, `date`)");
+    }
+
+    // 新建数据库时 Room 只建表，触发器需要手动创建
+    private static final Callback CALLBACK = new Callback() {
+        @Override
+        public void onCreate(@NonNull SupportSQLiteDatabase db) {
+            DailyRollup.createTriggers(db);
+            ChangeJournal.createTriggers(db);
+            DailyRollup.createDayKeyTriggers(db);
+            TransactionSearch.createTriggers(db);
+            seedCategories(db);
+        }
+    };
+
+    public static final String NAME = "budget_db";
 
     public static AppDatabase getDatabase(final Context context) {
         if (INSTANCE == null) {
             synchronized (AppDatabase.class) {
                 if (INSTANCE == null) {
                     INSTANCE = Room.databaseBuilder(context.getApplicationContext(),
-                            AppDatabase.class, "budget_db").build();
+                                    AppDatabase.class, NAME)
+                            .addMigrations(ALL_MIGRATIONS)
+                            .addCallback(CALLBACK)
+                            // 查询走有界的读线程池；写入由调用方放到 AppExecutors.writer
+                            .setQueryExecutor(AppExecutors.get().reads)
+                            .build();
                 }
             }
         }
         return INSTANCE;
     }
-}
\ No newline at end of file
+
+    // --- 变更日志的读者与清理 ---
+
+    // 进程内仍在按序号读取变更日志的读者 (界面观察者) 及其已读到的序号。
+    // 登记、推进与清理都在这把锁下进行，清理不会删掉任何读者还没读到的记录
+    private final Map<Object, Long> journalReaders = new HashMap<>();
+
+    // 从当前序号开始读取，返回该序号
+    public long registerJournalReader(Object reader) {
+        synchronized (journalReaders) {
+            long seq = ChangeJournal.currentSeq(getOpenHelper().getReadableDatabase());
+            journalReaders.put(reader, seq);
+            return seq;
+        }
+    }
+
+    public void advanceJournalReader(Object reader, long seq) {
+        synchronized (journalReaders) {
+            if (journalReaders.containsKey(reader)) journalReaders.put(reader, seq);
+        }
+    }
+
+    public void unregisterJournalReader(Object reader) {
+        synchronized (journalReaders) {
+            journalReaders.remove(reader);
+        }
+    }
+
+    // 删除 upToSeq 及之前、且所有读者都已读过的记录 (在写线程调用)
+    public void pruneChangeLog(long upToSeq) {
+        synchronized (journalReaders) {
+            long limit = upToSeq;
+            for (long seq : journalReaders.values()) limit = Math.min(limit, seq);
+            ChangeJournal.prune(getOpenHelper().getWritableDatabase(), limit);
+        }
+    }
+
+    // --- 汇总表维护 (在后台线程调用) ---
+
+    public void rebuildDailyTotals() {
+        // runInTransaction 结束时会通知 InvalidationTracker，观察汇总表的 LiveData 随之刷新
+        runInTransaction(() -> {
+            SupportSQLiteDatabase db = getOpenHelper().getWritableDatabase();
+            DailyRollup.refreshDayKeys(db);
+            DailyRollup.rebuild(db);
+        });
+    }
+
+    // 返回汇总表与原始数据不一致的行数，0 表示一致
+    public int verifyDailyTotals() {
+        return DailyRollup.verify(getOpenHelper().getReadableDatabase());
+    }
+
+    // 汇总表与 day_key 按本地时区分天，时区变化后需要重建
+    public void ensureDailyTotalsZone(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences("daily_totals", Context.MODE_PRIVATE);
+        String zone = ZoneId.systemDefault().getId();
+        if (!zone.equals(prefs.getString("zone", null))) {
+            rebuildDailyTotals();
+            prefs.edit().putString("zone", zone).apply();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.budgetapp.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+// 分类字典：账单只存 category_id，名称在这里维护，用户可自行增加
+@Entity(tableName = "categories", indices = {@Index(value = "name", unique = true)})
+public class Category {
+    // 缺省分类：导入/恢复时遇到空分类归到这里
+    public static final String OTHER = "其他";
+    public static final String INCOME = "收入";
+
+    @PrimaryKey(autoGenerate = true)
+    public int id;
+    @NonNull
+    public String name;
+    public int type;        // 记账时出现在哪一组：1 收入, 0 支出
+
+    public Category(@NonNull String name, int type) {
+        this.name = name;
+        this.type = type;
+    }
+}
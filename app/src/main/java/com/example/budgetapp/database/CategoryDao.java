@@ -0,0 +1,24 @@
+package com.example.budgetapp.database;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import java.util.List;
+
+@Dao
+public interface CategoryDao {
+    @Query("SELECT * FROM categories ORDER BY id")
+    LiveData<List<Category>> getAll();
+
+    @Query("SELECT * FROM categories ORDER BY id")
+    List<Category> getAllSync();
+
+    @Query("SELECT id FROM categories WHERE name = :name")
+    Integer findId(String name);
+
+    // 同名分类已存在时返回 -1
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long insert(Category category);
+}
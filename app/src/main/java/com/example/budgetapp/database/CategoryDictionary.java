@@ -0,0 +1,31 @@
+package com.example.budgetapp.database;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 批量写入 (导入、恢复) 时把分类名换成 id：启动时读入整张分类表，遇到新名称才插入一行。
+ * 只在一个后台线程里使用。
+ */
+public final class CategoryDictionary {
+    private final CategoryDao dao;
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    public CategoryDictionary(CategoryDao dao) {
+        this.dao = dao;
+        for (Category c : dao.getAllSync()) {
+            ids.put(c.name, c.id);
+        }
+    }
+
+    // 空名称归入 "其他"；type 只在新建分类时使用
+    public int idOf(String name, int type) {
+        String key = name == null || name.trim().isEmpty() ? Category.OTHER : name.trim();
+        Integer id = ids.get(key);
+        if (id != null) return id;
+        long inserted = dao.insert(new Category(key, type));
+        int newId = inserted > 0 ? (int) inserted : dao.findId(key);
+        ids.put(key, newId);
+        return newId;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.budgetapp.database;
+
+// 聚合查询结果：某个支出分类的合计
+public class CategoryTotal {
+    public int categoryId;
+    public String category;     // 分类名称
+    public long total;          // 单位：分
+}
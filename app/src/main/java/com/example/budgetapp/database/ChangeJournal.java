@@ -0,0 +1,91 @@
+package com.example.budgetapp.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import java.util.Arrays;
+
+/**
+ * change_log 的维护逻辑：transactions 每次插入/更新/删除都由触发器追加一条记录，
+ * 序号 seq 由 AUTOINCREMENT 保证单调递增。
+ * 界面也按序号读取新记录，得到被改动的日期，只刷新覆盖这些日期的周期 (见 {@link #changedDaysSince})。
+ * 增量备份与界面都读过的记录才能清理，由 AppDatabase.pruneChangeLog 统一调用 {@link #prune}。
+ */
+public final class ChangeJournal {
+    private ChangeJournal() { }
+
+    private static String log(int op, String row) {
+        return "INSERT INTO change_log (op, row_id, date, type, category_id, amount, note, payee) SELECT " + op + ", "
+                + row + ".id, " + row + ".date, " + row + ".type, " + row + ".category_id, " + row + ".amount, "
+                + row + ".note, " + row + ".payee";
+    }
+
+    public static void createTriggers(SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_journal_insert AFTER INSERT ON transactions BEGIN "
+                + log(ChangeLogEntry.OP_UPSERT, "NEW") + "; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_journal_delete AFTER DELETE ON transactions BEGIN "
+                + log(ChangeLogEntry.OP_DELETE, "OLD") + "; END");
+        // id 或日期被改写时旧行视为删除：日志里因此同时有旧日期与新日期，重放结果不变
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_journal_update AFTER UPDATE OF id, date, type, category_id, amount, note, payee "
+                + "ON transactions BEGIN "
+                + log(ChangeLogEntry.OP_DELETE, "OLD") + " WHERE OLD.id != NEW.id OR OLD.date != NEW.date; "
+                + log(ChangeLogEntry.OP_UPSERT, "NEW") + "; END");
+    }
+
+    public static void dropTriggers(SupportSQLiteDatabase db) {
+        db.execSQL("DROP TRIGGER IF EXISTS trg_journal_insert");
+        db.execSQL("DROP TRIGGER IF EXISTS trg_journal_delete");
+        db.execSQL("DROP TRIGGER IF EXISTS trg_journal_update");
+    }
+
+    // 已分配的最大序号 (日志被清理后依然保留在 sqlite_sequence 中)
+    private static final String CURRENT_SEQ = "SELECT seq FROM sqlite_sequence WHERE name = 'change_log'";
+
+    public static long currentSeq(SupportSQLiteDatabase db) {
+        try (Cursor c = db.query(CURRENT_SEQ)) {
+            return c.moveToFirst() ? c.getLong(0) : 0;
+        }
+    }
+
+    // 同上，用于备份时的只读快照连接
+    public static long currentSeq(SQLiteDatabase db) {
+        try (Cursor c = db.rawQuery(CURRENT_SEQ, null)) {
+            return c.moveToFirst() ? c.getLong(0) : 0;
+        }
+    }
+
+    // afterSeq 之后的变更涉及的本地日期 (epochDay，可能重复)
+    public static final class Changes {
+        public final long lastSeq;      // 已读到的最大序号，下次从这里继续
+        public final long[] days;
+        public final boolean overflow;  // 超过 limit 条 (批量导入等)：days 不完整，应整体失效
+
+        Changes(long lastSeq, long[] days, boolean overflow) {
+            this.lastSeq = lastSeq;
+            this.days = days;
+            this.overflow = overflow;
+        }
+    }
+
+    // 读取 afterSeq 之后至多 limit 条变更的日期；超过 limit 时不再逐条读取，直接跳到当前序号
+    public static Changes changedDaysSince(SupportSQLiteDatabase db, long afterSeq, int limit) {
+        long[] days = new long[16];
+        int n = 0;
+        long last = afterSeq;
+        try (Cursor c = db.query("SELECT seq, " + DailyRollup.dayKey("change_log") + " FROM change_log "
+                + "WHERE seq > ? ORDER BY seq LIMIT ?", new Object[]{afterSeq, limit + 1})) {
+            while (c.moveToNext()) {
+                if (n == limit) return new Changes(Math.max(last, currentSeq(db)), new long[0], true);
+                if (n == days.length) days = Arrays.copyOf(days, n * 2);
+                last = c.getLong(0);
+                days[n++] = c.getLong(1);
+            }
+        }
+        return new Changes(last, Arrays.copyOf(days, n), false);
+    }
+
+    // 删除 upToSeq 及之前的记录；调用方需确认没有读者还需要它们
+    public static void prune(SupportSQLiteDatabase db, long upToSeq) {
+        db.execSQL("DELETE FROM change_log WHERE seq <= ?", new Object[]{upToSeq});
+    }
+}
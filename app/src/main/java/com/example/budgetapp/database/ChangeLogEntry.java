@@ -0,0 +1,26 @@
+package com.example.budgetapp.database;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+// 变更日志 (由 transactions 上的触发器写入，见 ChangeJournal)，增量备份只导出其中的新记录
+@Entity(tableName = "change_log")
+public class ChangeLogEntry {
+    public static final int OP_DELETE = 0;
+    public static final int OP_UPSERT = 1;
+
+    @PrimaryKey(autoGenerate = true)
+    public long seq;        // 单调递增的序号
+    public int op;
+    @ColumnInfo(name = "row_id")
+    public int rowId;
+    // 插入/更新后的整行；删除时为被删的旧值
+    public long date;
+    public int type;
+    @ColumnInfo(name = "category_id")
+    public int categoryId;
+    public long amount;
+    public String note;
+    public String payee;
+}
@@ -0,0 +1,15 @@
+package com.example.budgetapp.database;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+
+// 按 天+分类 汇总的支出 (由触发器增量维护，见 DailyRollup)
+@Entity(tableName = "daily_category_totals", primaryKeys = {"day_key", "category_id"})
+public class DailyCategoryTotal {
+    @ColumnInfo(name = "day_key")
+    public long dayKey;
+    @ColumnInfo(name = "category_id")
+    public int categoryId;
+    public long expense;    // 单位：分
+    public int count;
+}
@@ -0,0 +1,131 @@
+package com.example.budgetapp.database;
+
+import android.database.Cursor;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * daily_totals / daily_category_totals 的维护逻辑。
+ * transactions 上的触发器在同一个 SQLite 事务里增量更新汇总表，
+ * 月/周/年合计因此最多只需读取约 366 行，与账本大小无关。
+ */
+public final class DailyRollup {
+    private DailyRollup() { }
+
+    // 本地日期的 epochDay：julianday('1970-01-01') = 2440587.5。
+    // 整数除法与 CAST 都向零截断，1970 年以前的时间会算到后一天：毫秒按实数换算，再向下取整
+    static String dayKey(String row) {
+        String days = "(julianday(" + row + ".date / 1000.0, 'unixepoch', 'localtime') - 2440587.5)";
+        return "(CAST(" + days + " AS INTEGER) - (" + days + " < CAST(" + days + " AS INTEGER)))";
+    }
+
+    private static String income(String row) {
+        return "(CASE WHEN " + row + ".type = 1 THEN " + row + ".amount ELSE 0 END)";
+    }
+
+    private static String expense(String row) {
+        return "(CASE WHEN " + row + ".type = 0 THEN " + row + ".amount ELSE 0 END)";
+    }
+
+    private static String category(String row) {
+        return row + ".category_id";
+    }
+
+    // 把一行账单累加进汇总表
+    private static String add(String row) {
+        String key = dayKey(row);
+        return "INSERT OR IGNORE INTO daily_totals (day_key, income, expense, count) VALUES (" + key + ", 0, 0, 0); "
+                + "UPDATE daily_totals SET income = income + " + income(row)
+                + ", expense = expense + " + expense(row) + ", count = count + 1 WHERE day_key = " + key + "; "
+                + "INSERT OR IGNORE INTO daily_category_totals (day_key, category_id, expense, count) "
+                + "SELECT " + key + ", " + category(row) + ", 0, 0 WHERE " + row + ".type = 0; "
+                + "UPDATE daily_category_totals SET expense = expense + " + row + ".amount, count = count + 1 "
+                + "WHERE " + row + ".type = 0 AND day_key = " + key + " AND category_id = " + category(row) + "; ";
+    }
+
+    // 从汇总表中减去一行账单，计数归零的行直接删除
+    private static String subtract(String row) {
+        String key = dayKey(row);
+        return "UPDATE daily_totals SET income = income - " + income(row)
+                + ", expense = expense - " + expense(row) + ", count = count - 1 WHERE day_key = " + key + "; "
+                + "DELETE FROM daily_totals WHERE day_key = " + key + " AND count <= 0; "
+                + "UPDATE daily_category_totals SET expense = expense - " + row + ".amount, count = count - 1 "
+                + "WHERE " + row + ".type = 0 AND day_key = " + key + " AND category_id = " + category(row) + "; "
+                + "DELETE FROM daily_category_totals WHERE day_key = " + key
+                + " AND category_id = " + category(row) + " AND count <= 0; ";
+    }
+
+    public static void createTriggers(SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_rollup_insert AFTER INSERT ON transactions BEGIN "
+                + add("NEW") + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_rollup_delete AFTER DELETE ON transactions BEGIN "
+                + subtract("OLD") + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_rollup_update AFTER UPDATE OF date, type, category_id, amount "
+                + "ON transactions BEGIN " + subtract("OLD") + add("NEW") + "END");
+    }
+
+    public static void dropTriggers(SupportSQLiteDatabase db) {
+        db.execSQL("DROP TRIGGER IF EXISTS trg_rollup_insert");
+        db.execSQL("DROP TRIGGER IF EXISTS trg_rollup_delete");
+        db.execSQL("DROP TRIGGER IF EXISTS trg_rollup_update");
+    }
+
+    // transactions.day_key 通常由 Transaction 构造时算好；触发器只在不一致时 (原始 SQL 写入、改了日期) 校正
+    public static void createDayKeyTriggers(SupportSQLiteDatabase db) {
+        String key = dayKey("NEW");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_day_key_insert AFTER INSERT ON transactions "
+                + "WHEN NEW.day_key != " + key + " BEGIN "
+                + "UPDATE transactions SET day_key = " + key + " WHERE id = NEW.id; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_day_key_update AFTER UPDATE OF date, day_key ON transactions "
+                + "WHEN NEW.day_key != " + key + " BEGIN "
+                + "UPDATE transactions SET day_key = " + key + " WHERE id = NEW.id; END");
+    }
+
+    public static void dropDayKeyTriggers(SupportSQLiteDatabase db) {
+        db.execSQL("DROP TRIGGER IF EXISTS trg_day_key_insert");
+        db.execSQL("DROP TRIGGER IF EXISTS trg_day_key_update");
+    }
+
+    // 按当前时区重算 day_key (迁移、时区变化后使用)
+    public static void refreshDayKeys(SupportSQLiteDatabase db) {
+        String key = dayKey("transactions");
+        db.execSQL("UPDATE transactions SET day_key = " + key + " WHERE day_key != " + key);
+    }
+
+    // 从 transactions 全量重建汇总表 (迁移、恢复备份、时区变化后使用)
+    public static void rebuild(SupportSQLiteDatabase db) {
+        String key = dayKey("transactions");
+        db.execSQL("DELETE FROM daily_totals");
+        db.execSQL("DELETE FROM daily_category_totals");
+        db.execSQL("INSERT INTO daily_totals (day_key, income, expense, count) "
+                + "SELECT " + key + ", SUM(" + income("transactions") + "), SUM(" + expense("transactions") + "), COUNT(*) "
+                + "FROM transactions GROUP BY 1");
+        db.execSQL("INSERT INTO daily_category_totals (day_key, category_id, expense, count) "
+                + "SELECT " + key + ", " + category("transactions") + ", SUM(amount), COUNT(*) "
+                + "FROM transactions WHERE type = 0 GROUP BY 1, 2");
+    }
+
+    // 校验汇总表与原始数据是否一致，返回不一致的行数 (0 表示一致)
+    public static int verify(SupportSQLiteDatabase db) {
+        String key = dayKey("transactions");
+        String days = "SELECT " + key + " AS day_key, SUM(" + income("transactions") + ") AS income, "
+                + "SUM(" + expense("transactions") + ") AS expense, COUNT(*) AS count FROM transactions GROUP BY 1";
+        String cats = "SELECT " + key + " AS day_key, " + category("transactions") + " AS category_id, "
+                + "SUM(amount) AS expense, COUNT(*) AS count FROM transactions WHERE type = 0 GROUP BY 1, 2";
+        return count(db, "SELECT COUNT(*) FROM (" + days + ") f LEFT JOIN daily_totals d ON d.day_key = f.day_key "
+                + "WHERE d.day_key IS NULL OR d.count != f.count "
+                + "OR d.income != f.income OR d.expense != f.expense")
+                + count(db, "SELECT COUNT(*) FROM daily_totals d LEFT JOIN (" + days + ") f "
+                + "ON f.day_key = d.day_key WHERE f.day_key IS NULL")
+                + count(db, "SELECT COUNT(*) FROM (" + cats + ") f LEFT JOIN daily_category_totals d "
+                + "ON d.day_key = f.day_key AND d.category_id = f.category_id "
+                + "WHERE d.day_key IS NULL OR d.count != f.count OR d.expense != f.expense")
+                + count(db, "SELECT COUNT(*) FROM daily_category_totals d LEFT JOIN (" + cats + ") f "
+                + "ON f.day_key = d.day_key AND f.category_id = d.category_id WHERE f.day_key IS NULL");
+    }
+
+    private static int count(SupportSQLiteDatabase db, String sql) {
+        try (Cursor c = db.query(sql)) {
+            return c.moveToFirst() ? c.getInt(0) : 0;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.budgetapp.database;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+// 按天汇总 (由 transactions 上的触发器增量维护，见 DailyRollup)
+@Entity(tableName = "daily_totals")
+public class DailyTotal {
+    @PrimaryKey
+    @ColumnInfo(name = "day_key")
+    public long dayKey;     // 本地日期的 epochDay (LocalDate.toEpochDay)
+    public long income;     // 单位：分
+    public long expense;
+    public int count;       // 当天账单条数
+}
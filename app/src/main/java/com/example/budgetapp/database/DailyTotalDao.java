@@ -0,0 +1,31 @@
+package com.example.budgetapp.database;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+import java.util.List;
+
+// 读取按天汇总表；区间参数均为本地日期的 epochDay，[startDay, endDay)
+// 同步查询，由 FinanceViewModel 在计算线程上调用
+@Dao
+public interface DailyTotalDao {
+    @Query("SELECT * FROM daily_totals WHERE day_key >= :startDay AND day_key < :endDay ORDER BY day_key")
+    List<DailyTotal> getDailyTotals(long startDay, long endDay);
+
+    // 最早 / 最晚有账单的一天 (主键上取 MIN / MAX)，没有数据时为 null
+    @Query("SELECT MIN(day_key) FROM daily_totals")
+    Long getFirstDay();
+
+    @Query("SELECT MAX(day_key) FROM daily_totals")
+    Long getLastDay();
+
+    // 区间收入/支出合计
+    @Query("SELECT IFNULL(SUM(income), 0) AS income, IFNULL(SUM(expense), 0) AS expense FROM daily_totals " +
+            "WHERE day_key >= :startDay AND day_key < :endDay")
+    PeriodTotal getPeriodTotal(long startDay, long endDay);
+
+    // 饼图：区间内各支出分类合计
+    @Query("SELECT d.category_id AS categoryId, c.name AS category, SUM(d.expense) AS total " +
+            "FROM daily_category_totals d LEFT JOIN categories c ON c.id = d.category_id " +
+            "WHERE d.day_key >= :startDay AND d.day_key < :endDay GROUP BY d.category_id")
+    List<CategoryTotal> getExpenseByCategory(long startDay, long endDay);
+}
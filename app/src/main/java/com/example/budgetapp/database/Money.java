@@ -0,0 +1,30 @@
+package com.example.budgetapp.database;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// 金额统一以 "分" 为单位的 long 存储和累加，只在输入、显示、画图时换算为 "元"
+public final class Money {
+    private Money() { }
+
+    // "12.5" -> 1250，超出两位小数按四舍五入
+    public static long parse(String yuan) {
+        return new BigDecimal(yuan.trim()).movePointRight(2)
+                .setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    // 1250 -> "12.5"，用于回填输入框
+    public static String toPlainString(long cents) {
+        return BigDecimal.valueOf(cents, 2).stripTrailingZeros().toPlainString();
+    }
+
+    // 界面显示取整到元：1250 -> "13"
+    public static String format(long cents) {
+        return String.format("%.0f", cents / 100.0);
+    }
+
+    // 图表边界：只在这里转为 float
+    public static float toFloat(long cents) {
+        return cents / 100f;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.budgetapp.database;
+
+// 聚合查询结果：一个周期内的收入、支出合计
+public class PeriodTotal {
+    public long income;     // 单位：分
+    public long expense;
+}
@@ -0,0 +1,44 @@
+package com.example.budgetapp.database;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+import com.example.budgetapp.analytics.Recurrence;
+
+// 重复记账规则 (房租、工资、订阅)。到期的发生日才写成账单 (见 RecurringMaterializer)，
+// 之后的发生日只在查看对应周期时临时展开 (见 RecurringProjection)
+@Entity(tableName = "recurring_rules")
+public class RecurringRule {
+    @PrimaryKey(autoGenerate = true)
+    public int id;
+    public int type;        // 1: 收入, 0: 支出
+    @ColumnInfo(name = "category_id")
+    public int categoryId;
+    public long amount;     // 单位：分
+    public String note;
+    public String payee;
+    public int frequency;   // Recurrence.WEEKLY / MONTHLY / YEARLY
+    public int interval;    // 每几周 / 月 / 年
+    @ColumnInfo(name = "start_day")
+    public long startDay;   // 首次发生的 epochDay
+    @ColumnInfo(name = "end_day")
+    public Long endDay;     // 截止 epochDay (不含)，为空表示不结束
+    // 此前的发生日都已写成账单 (epochDay，不含)
+    @ColumnInfo(name = "materialized_through")
+    public long materializedThrough;
+
+    public RecurringRule(int type, int categoryId, long amount, int frequency, int interval, long startDay) {
+        this.type = type;
+        this.categoryId = categoryId;
+        this.amount = amount;
+        this.frequency = frequency;
+        this.interval = interval;
+        this.startDay = startDay;
+        this.materializedThrough = startDay;
+    }
+
+    public Recurrence recurrence() {
+        return new Recurrence(startDay, frequency, interval, endDay != null ? endDay : Long.MAX_VALUE);
+    }
+}
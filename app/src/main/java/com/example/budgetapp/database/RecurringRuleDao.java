@@ -0,0 +1,32 @@
+package com.example.budgetapp.database;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Delete;
+import androidx.room.Insert;
+import androidx.room.Query;
+import java.util.List;
+
+@Dao
+public interface RecurringRuleDao {
+    @Query("SELECT * FROM recurring_rules ORDER BY id")
+    LiveData<List<RecurringRule>> getAll();
+
+    @Query("SELECT * FROM recurring_rules ORDER BY id")
+    List<RecurringRule> getAllSync();
+
+    // 截至 today (含) 还有发生日没写成账单的规则
+    @Query("SELECT * FROM recurring_rules WHERE materialized_through <= :today "
+            + "AND (end_day IS NULL OR materialized_through < end_day)")
+    List<RecurringRule> getDue(long today);
+
+    @Insert
+    long insert(RecurringRule rule);
+
+    // 已写成的账单保留
+    @Delete
+    void delete(RecurringRule rule);
+
+    @Query("UPDATE recurring_rules SET materialized_through = :day WHERE id = :id")
+    void setMaterializedThrough(int id, long day);
+}
@@ -1,21 +1,51 @@
 package com.example.budgetapp.database;
 
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
-@Entity(tableName = "transactions")
+import com.example.budgetapp.analytics.DayIndex;
+
+// 索引：按日期区间、按 类型+日期、按 分类+日期 查询都能走索引 (见 AppDatabase.MIGRATION_1_2 / MIGRATION_6_7)
+@Entity(tableName = "transactions",
+        indices = {
+                @Index("date"),
+                @Index({"type", "date"}),
+                @Index({"category_id", "date"})
+        })
 public class Transaction {
     @PrimaryKey(autoGenerate = true)
     public int id;
     public long date;       // 时间戳
     public int type;        // 1: 收入, 0: 支出
-    public String category; // 饮食, 娱乐...
-    public double amount;
+    // 分类 id (见 Category)
+    @ColumnInfo(name = "category_id", defaultValue = "0")
+    public int categoryId;
+    public long amount;     // 金额，单位：分 (见 Money)
+    // date 所在本地日期的 epochDay，分桶时直接做整数运算；写入时由触发器兜底校正 (见 DailyRollup)
+    @ColumnInfo(name = "day_key", defaultValue = "0")
+    public long dayKey;
+    public String note;     // 备注，可为空
+    public String payee;    // 商家 / 对象，可为空 (导入的账单来自 OFX 的 NAME)
+
+    @Ignore
+    public Transaction(long date, int type, int categoryId, long amount) {
+        this.date = date;
+        this.type = type;
+        this.categoryId = categoryId;
+        this.amount = amount;
+        this.dayKey = DayIndex.current().epochDay(date);
+    }
 
-    public Transaction(long date, int type, String category, double amount) {
+    // Room 读取时使用，不重新计算 dayKey
+    public Transaction(int id, long date, int type, int categoryId, long amount, long dayKey) {
+        this.id = id;
         this.date = date;
         this.type = type;
-        this.category = category;
+        this.categoryId = categoryId;
         this.amount = amount;
+        this.dayKey = dayKey;
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package com.example.budgetapp.database;
 
-import androidx.lifecycle.LiveData;
+import android.database.Cursor;
+import androidx.paging.PagingSource;
 import androidx.room.Dao;
 import androidx.room.Delete; // 必须导入
 import androidx.room.Insert;
@@ -13,12 +14,53 @@ public interface TransactionDao {
     @Insert
     void insert(Transaction transaction);
 
+    // 批量插入：整批在同一个事务里写入，只触发一次数据变更通知
+    @Insert
+    void insertAll(List<Transaction> transactions);
+
     @Delete  // 新增：允许删除
     void delete(Transaction transaction);
 
     @Update  // 新增：允许修改
     void update(Transaction transaction);
 
-    @Query("SELECT * FROM transactions ORDER BY date DESC")
-    LiveData<List<Transaction>> getAllTransactions();
+    // --- 分页查询：明细弹窗只加载可见的一页 ---
+
+    @Query("SELECT * FROM transactions WHERE date >= :start AND date < :end ORDER BY date DESC")
+    PagingSource<Integer, Transaction> pageTransactionsBetween(long start, long end);
+
+    @Query("SELECT * FROM transactions WHERE category_id = :categoryId AND type = :type " +
+            "AND date >= :start AND date < :end ORDER BY date DESC")
+    PagingSource<Integer, Transaction> pageTransactionsBetweenByCategory(long start, long end, int type, int categoryId);
+
+    // --- 全文检索：match 由 TransactionSearch.matchQuery 生成，先查索引再按主键取行 ---
+
+    @Query("SELECT t.* FROM transactions_fts JOIN transactions t ON t.id = transactions_fts.docid " +
+            "WHERE transactions_fts MATCH :match ORDER BY t.date DESC")
+    PagingSource<Integer, Transaction> search(String match);
+
+    @Query("SELECT t.* FROM transactions_fts JOIN transactions t ON t.id = transactions_fts.docid " +
+            "WHERE transactions_fts MATCH :match ORDER BY t.date DESC LIMIT :limit")
+    List<Transaction> searchSync(String match, int limit);
+
+    @Query("SELECT day_key FROM transactions WHERE id = :id")
+    Long getDayKey(int id);
+
+    @Query("SELECT COUNT(*) FROM transactions")
+    int count();
+
+    // 导出用：按 (date, id) 升序的一页游标 (带分类名称 category_name)；type / categoryId 为 null 表示不限。
+    // 键集分页：下一页从上一页最后一行的 (date, id) 之后开始 (首页 afterId 传 -1)，
+    // date 索引本身按 (date, rowid) 有序，每页都是一次索引区间扫描，无需排序、无需跳过前面的行
+    @Query("SELECT t.*, c.name AS category_name FROM transactions t " +
+            "LEFT JOIN categories c ON c.id = t.category_id " +
+            "WHERE t.date >= :from AND t.date < :end AND (t.date > :from OR t.id > :afterId) " +
+            "AND (:type IS NULL OR t.type = :type) AND (:categoryId IS NULL OR t.category_id = :categoryId) " +
+            "ORDER BY t.date, t.id LIMIT :limit")
+    Cursor exportPage(long from, long end, Integer type, Integer categoryId, int afterId, int limit);
+
+    @Query("SELECT COUNT(*) FROM transactions WHERE date >= :start AND date < :end " +
+            "AND (:type IS NULL OR type = :type) AND (:categoryId IS NULL OR category_id = :categoryId)")
+    long countForExport(long start, long end, Integer type, Integer categoryId);
+
 }
\ No newline at end of file
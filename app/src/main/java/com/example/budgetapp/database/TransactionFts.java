@@ -0,0 +1,15 @@
+package com.example.budgetapp.database;
+
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+
+// 全文检索表：docid 即账单 id，内容为分类名、备注、商家 (由 TransactionSearch 的触发器维护)。
+// ICU 分词按词切分中文，"午饭" 能匹配 "和同事吃午饭"
+@Fts4(tokenizer = FtsOptions.TOKENIZER_ICU, tokenizerArgs = {"zh_CN"})
+@Entity(tableName = "transactions_fts")
+public class TransactionFts {
+    public String category;
+    public String note;
+    public String payee;
+}
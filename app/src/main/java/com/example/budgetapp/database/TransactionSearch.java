@@ -0,0 +1,62 @@
+package com.example.budgetapp.database;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * transactions_fts 的维护逻辑：transactions 上的触发器把 分类名、备注、商家 同步进全文索引，
+ * 分类改名时一并更新。搜索先在索引里找出匹配的 docid，再按主键取账单，不扫描 transactions。
+ */
+public final class TransactionSearch {
+    private TransactionSearch() { }
+
+    private static String insert(String row) {
+        return "INSERT INTO transactions_fts (docid, category, note, payee) VALUES (" + row + ".id, "
+                + "(SELECT name FROM categories WHERE id = " + row + ".category_id), "
+                + row + ".note, " + row + ".payee); ";
+    }
+
+    private static String delete(String row) {
+        return "DELETE FROM transactions_fts WHERE docid = " + row + ".id; ";
+    }
+
+    public static void createTriggers(SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_search_insert AFTER INSERT ON transactions BEGIN "
+                + insert("NEW") + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_search_delete AFTER DELETE ON transactions BEGIN "
+                + delete("OLD") + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_search_update AFTER UPDATE OF id, category_id, note, payee "
+                + "ON transactions BEGIN " + delete("OLD") + insert("NEW") + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_search_category AFTER UPDATE OF name ON categories BEGIN "
+                + "UPDATE transactions_fts SET category = NEW.name "
+                + "WHERE docid IN (SELECT id FROM transactions WHERE category_id = NEW.id); END");
+    }
+
+    public static void dropTriggers(SupportSQLiteDatabase db) {
+        db.execSQL("DROP TRIGGER IF EXISTS trg_search_insert");
+        db.execSQL("DROP TRIGGER IF EXISTS trg_search_delete");
+        db.execSQL("DROP TRIGGER IF EXISTS trg_search_update");
+        db.execSQL("DROP TRIGGER IF EXISTS trg_search_category");
+    }
+
+    // 从 transactions 全量重建索引 (迁移、恢复备份后使用)
+    public static void rebuild(SupportSQLiteDatabase db) {
+        db.execSQL("DELETE FROM transactions_fts");
+        db.execSQL("INSERT INTO transactions_fts (docid, category, note, payee) "
+                + "SELECT t.id, c.name, t.note, t.payee FROM transactions t "
+                + "LEFT JOIN categories c ON c.id = t.category_id");
+    }
+
+    // 把用户输入转成 MATCH 表达式：按空白切分，每段作为前缀短语 ("午饭*")，段与段之间为 AND。
+    // 引号、星号由这里加上，用户输入里的一律去掉；没有可检索的内容时返回 null
+    public static String matchQuery(String input) {
+        if (input == null) return null;
+        StringBuilder match = new StringBuilder();
+        for (String part : input.trim().split("\\s+")) {
+            String term = part.replace("\"", "").replace("*", "");
+            if (term.isEmpty()) continue;
+            if (match.length() > 0) match.append(' ');
+            match.append('"').append(term).append("*\"");
+        }
+        return match.length() == 0 ? null : match.toString();
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.budgetapp.database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 单条写入的合并队列，运行在唯一的写线程上 (见 AppExecutors.writer)：
+ * 一个窗口 (默认约一帧) 内提交的写入按提交顺序合并进同一个数据库事务，
+ * 提交后只回调一次 BatchListener，InvalidationTracker 也只通知一次。
+ * Room 的每个 DAO 写方法都开一个嵌套事务，其中一条抛出异常时 Android 会把外层事务标记为失败、
+ * 结束时整批回滚，无法只撤销这一条 (SAVEPOINT 也绕不开这个标记)。所以单条写入的异常会中止整批，
+ * 随后逐条各用一个事务重试：失败的那条只让它自己的 future 失败，其余照常提交。
+ */
+public final class WriteQueue {
+    public static final long DEFAULT_WINDOW_MS = 16;
+
+    // 一次写入，返回受影响的本地日期 (epochDay)，在写线程、事务内执行
+    public interface Write {
+        long[] apply();
+    }
+
+    // 一批写入提交后回调 (写线程)，days 为整批受影响的日期 (可能有重复)
+    public interface BatchListener {
+        void onBatchCommitted(long[] days);
+    }
+
+    private static final class Pending {
+        final Write write;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Pending(Write write) {
+            this.write = write;
+        }
+    }
+
+    private final Consumer<Runnable> transaction;
+    private final BatchListener listener;
+    // 窗口结束后把合并好的一批交给写线程
+    private final Executor delayedWriter;
+
+    private final Object lock = new Object();
+    private List<Pending> pending = new ArrayList<>();
+    private boolean scheduled;
+
+    // transaction：在一个数据库事务里执行传入的 Runnable，如 AppDatabase::runInTransaction；
+    // writer 必须是单线程的，批与批之间才有先后顺序
+    public WriteQueue(Consumer<Runnable> transaction, Executor writer, long windowMillis, BatchListener listener) {
+        this.transaction = transaction;
+        this.listener = listener;
+        this.delayedWriter = CompletableFuture.delayedExecutor(windowMillis, TimeUnit.MILLISECONDS, writer);
+    }
+
+    // 可在任意线程调用；写入完成 (已提交) 或失败时 future 结束
+    public CompletableFuture<Void> submit(Write write) {
+        Pending p = new Pending(write);
+        synchronized (lock) {
+            pending.add(p);
+            if (!scheduled) {
+                scheduled = true;
+                delayedWriter.execute(this::drain);
+            }
+        }
+        return p.done;
+    }
+
+    private void drain() {
+        List<Pending> batch;
+        synchronized (lock) {
+            batch = pending;
+            pending = new ArrayList<>();
+            scheduled = false;
+        }
+
+        boolean[] ok = new boolean[batch.size()];
+        long[][] touched = new long[batch.size()][];
+        try {
+            transaction.accept(() -> {
+                for (int i = 0; i < batch.size(); i++) {
+                    touched[i] = batch.get(i).write.apply();
+                }
+            });
+            Arrays.fill(ok, true);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).done.completeExceptionally(e);
+                return;
+            }
+            // 整批已回滚：逐条重试，每条一个事务
+            Arrays.fill(touched, null);
+            for (int i = 0; i < batch.size(); i++) {
+                Pending p = batch.get(i);
+                long[][] one = new long[1][];
+                try {
+                    transaction.accept(() -> one[0] = p.write.apply());
+                    touched[i] = one[0];
+                    ok[i] = true;
+                } catch (RuntimeException retry) {
+                    p.done.completeExceptionally(retry);
+                }
+            }
+        }
+
+        int total = 0;
+        for (long[] t : touched) {
+            if (t != null) total += t.length;
+        }
+        long[] days = new long[total];
+        int n = 0;
+        for (long[] t : touched) {
+            if (t == null) continue;
+            System.arraycopy(t, 0, days, n, t.length);
+            n += t.length;
+        }
+
+        // 先让缓存失效再结束 future，调用方在回调里读到的一定是新数据
+        try {
+            if (listener != null) listener.onBatchCommitted(days);
+        } finally {
+            for (int i = 0; i < batch.size(); i++) {
+                if (ok[i]) batch.get(i).done.complete(null);
+            }
+        }
+    }
+}
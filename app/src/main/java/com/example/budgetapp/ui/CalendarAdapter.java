@@ -8,15 +8,15 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.budgetapp.R;
-import com.example.budgetapp.database.Transaction;
+import com.example.budgetapp.database.Money;
 import java.time.LocalDate;
-import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
 
 public class CalendarAdapter extends RecyclerView.Adapter<CalendarAdapter.ViewHolder> {
     private List<LocalDate> days = new ArrayList<>();
-    private List<Transaction> transactions = new ArrayList<>();
+    // 与 days 按位置对应的每日净收支，由 ViewModel 预先算好
+    private long[] dayNet = new long[0];
     private LocalDate selectedDate;
     private final OnDateClickListener listener;
 
@@ -28,15 +28,28 @@ public class CalendarAdapter extends RecyclerView.Adapter<CalendarAdapter.ViewHo
         this.listener = listener;
     }
 
-    public void updateData(List<LocalDate> days, List<Transaction> transactions) {
+    public void updateData(List<LocalDate> days, long[] dayNet) {
+        if (days.equals(this.days) && dayNet.length == this.dayNet.length) {
+            // 同一个月：只刷新净收支有变化的格子
+            long[] old = this.dayNet;
+            this.dayNet = dayNet;
+            for (int i = 0; i < dayNet.length; i++) {
+                if (old[i] != dayNet[i]) notifyItemChanged(i);
+            }
+            return;
+        }
         this.days = days;
-        this.transactions = transactions;
+        this.dayNet = dayNet;
         notifyDataSetChanged();
     }
 
+    // 切换选中日期：只重绘旧的和新的两个格子
     public void setSelectedDate(LocalDate date) {
+        int oldPosition = days.indexOf(selectedDate);
         this.selectedDate = date;
-        notifyDataSetChanged();
+        int newPosition = days.indexOf(date);
+        if (oldPosition != -1) notifyItemChanged(oldPosition);
+        if (newPosition != -1 && newPosition != oldPosition) notifyItemChanged(newPosition);
     }
 
     @NonNull
@@ -58,19 +71,11 @@ public class CalendarAdapter extends RecyclerView.Adapter<CalendarAdapter.ViewHo
 
         holder.tvDay.setText(String.valueOf(date.getDayOfMonth()));
 
-        // 计算净收支
-        double net = 0;
-        long start = date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
-        long end = date.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
-
-        for (Transaction t : transactions) {
-            if (t.date >= start && t.date < end) {
-                if (t.type == 1) net += t.amount; else net -= t.amount;
-            }
-        }
+        // 净收支已按天预先汇总
+        long net = position < dayNet.length ? dayNet[position] : 0;
 
-        if (Math.abs(net) > 0.01) {
-            holder.tvNet.setText(String.format("%.0f", net));
+        if (net != 0) {
+            holder.tvNet.setText(Money.format(net));
             // 净收入红色，净支出绿色
             holder.tvNet.setTextColor(net > 0 ? Color.parseColor("#FF5252") : Color.parseColor("#4CAF50"));
         } else {
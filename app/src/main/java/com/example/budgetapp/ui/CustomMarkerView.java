@@ -4,14 +4,12 @@ import android.content.Context;
 import android.widget.TextView;
 
 import com.example.budgetapp.R;
+import com.example.budgetapp.database.Money;
 import com.github.mikephil.charting.components.MarkerView;
 import com.github.mikephil.charting.data.Entry;
 import com.github.mikephil.charting.highlight.Highlight;
 import com.github.mikephil.charting.utils.MPPointF;
 
-import java.util.HashMap;
-import java.util.Map;
-
 public class CustomMarkerView extends MarkerView {
     private final TextView tvDate;
     private final TextView tvIncome;
@@ -21,9 +19,9 @@ public class CustomMarkerView extends MarkerView {
     private String suffix = ""; // 单位 (月/日)
     private String[] customLabels = null; // 用于周视图 (周一, 周二...)
 
-    // 数据源缓存
-    private Map<Integer, Double> incomeMap = new HashMap<>();
-    private Map<Integer, Double> expenseMap = new HashMap<>();
+    // 数据源缓存：下标即分桶，单位：分
+    private long[] income = new long[0];
+    private long[] expense = new long[0];
 
     public CustomMarkerView(Context context, int layoutResource) {
         super(context, layoutResource);
@@ -34,9 +32,9 @@ public class CustomMarkerView extends MarkerView {
     }
 
     // 关键方法：接收外部传入的数据源
-    public void setSourceData(Map<Integer, Double> income, Map<Integer, Double> expense, String suffix, String[] customLabels) {
-        this.incomeMap = income;
-        this.expenseMap = expense;
+    public void setSourceData(long[] income, long[] expense, String suffix, String[] customLabels) {
+        this.income = income;
+        this.expense = expense;
         this.suffix = suffix;
         this.customLabels = customLabels;
     }
@@ -53,17 +51,17 @@ public class CustomMarkerView extends MarkerView {
             tvDate.setText(index + suffix); // 显示 "1月" 或 "15日"
         }
 
-        // 2. 从 Map 中查找全部数据 (无论点击的是哪条线)
-        double in = incomeMap.getOrDefault(index, 0.0);
-        double out = expenseMap.getOrDefault(index, 0.0);
-        double net = in - out;
+        // 2. 按下标取全部数据 (无论点击的是哪条线)
+        long in = index >= 0 && index < income.length ? income[index] : 0;
+        long out = index >= 0 && index < expense.length ? expense[index] : 0;
+        long net = in - out;
 
         // 3. 设置数值显示
-        tvIncome.setText(String.format("收入: +%.0f", in));
-        tvExpense.setText(String.format("支出: -%.0f", out));
+        tvIncome.setText("收入: +" + Money.format(in));
+        tvExpense.setText("支出: -" + Money.format(out));
 
         String netSign = net >= 0 ? "+" : "";
-        tvNet.setText(String.format("净收支: %s%.0f", netSign, net));
+        tvNet.setText("净收支: " + netSign + Money.format(net));
 
         super.refreshContent(e, highlight);
     }
@@ -5,10 +5,13 @@ import android.app.DatePickerDialog;
 import android.graphics.Color;
 import android.graphics.drawable.ColorDrawable;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.EditText;
 import android.widget.RadioButton;
 import android.widget.RadioGroup;
@@ -17,25 +20,37 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.fragment.app.Fragment;
+import androidx.core.content.ContextCompat;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.paging.PagingData;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.budgetapp.R;
+import com.example.budgetapp.analytics.Recurrence;
+import com.example.budgetapp.database.Category;
+import com.example.budgetapp.database.Money;
+import com.example.budgetapp.database.PeriodTotal;
+import com.example.budgetapp.database.RecurringRule;
 import com.example.budgetapp.database.Transaction;
+import com.example.budgetapp.viewmodel.CalendarMonth;
 import com.example.budgetapp.viewmodel.FinanceViewModel;
+import com.example.budgetapp.viewmodel.PeriodWindow;
 
-import java.time.Instant;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class RecordFragment extends Fragment {
+    // 输入停顿这么久才发起搜索，连续输入只查最后一次
+    private static final long SEARCH_DEBOUNCE_MS = 300;
+
     private FinanceViewModel viewModel;
     private CalendarAdapter adapter;
     private YearMonth currentMonth;
@@ -43,6 +58,8 @@ public class RecordFragment extends Fragment {
     private TextView tvMonthTitle;
 
     private TextView tvIncome, tvExpense, tvBalance;
+    // 分类字典，记账弹窗的分类选项由它生成
+    private List<Category> categories = new ArrayList<>();
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -79,10 +96,8 @@ public class RecordFragment extends Fragment {
             DatePickerDialog datePicker = new DatePickerDialog(requireContext(), (picker, selectYear, selectMonth, selectDay) -> {
                 // 3. 用户点击确定后，更新 currentMonth
                 // selectMonth 是 0-11，YearMonth 需要 1-12，所以 +1
-                currentMonth = YearMonth.of(selectYear, selectMonth + 1);
-
-                // 4. 刷新日历视图
-                updateCalendar();
+                // 4. 切换月份，数据返回后刷新日历视图
+                changeMonth(YearMonth.of(selectYear, selectMonth + 1));
 
             }, year, month, day);
 
@@ -92,73 +107,49 @@ public class RecordFragment extends Fragment {
         });
         // --- 新增代码结束 ---
 
-        view.findViewById(R.id.btn_prev_month).setOnClickListener(v -> {
-            currentMonth = currentMonth.minusMonths(1);
-            updateCalendar();
-        });
-        view.findViewById(R.id.btn_next_month).setOnClickListener(v -> {
-            currentMonth = currentMonth.plusMonths(1);
-            updateCalendar();
-        });
+        view.findViewById(R.id.btn_prev_month).setOnClickListener(v -> changeMonth(currentMonth.minusMonths(1)));
+        view.findViewById(R.id.btn_next_month).setOnClickListener(v -> changeMonth(currentMonth.plusMonths(1)));
+        view.findViewById(R.id.btn_search).setOnClickListener(v -> showSearchDialog());
+        view.findViewById(R.id.btn_recurring).setOnClickListener(v -> showRecurringRulesDialog());
 
-        viewModel.getAllTransactions().observe(getViewLifecycleOwner(), list -> updateCalendar());
-        updateCalendar();
+        viewModel.getCalendarMonth().observe(getViewLifecycleOwner(), this::updateCalendar);
+        // 日历格子与本月合计都在 ViewModel 的计算线程上生成
+        viewModel.getMonthSummary().observe(getViewLifecycleOwner(), this::showMonthTotals);
+        viewModel.getCategories().observe(getViewLifecycleOwner(), list -> categories = list);
+        changeMonth(currentMonth);
         return view;
     }
 
-    // 修改 updateCalendar 方法，增加计算逻辑
-    private void updateCalendar() {
-        tvMonthTitle.setText(currentMonth.format(DateTimeFormatter.ofPattern("yyyy年MM月")));
-
-        // 1. 生成日历格子数据 (保持不变)
-        List<LocalDate> days = new ArrayList<>();
-        int length = currentMonth.lengthOfMonth();
-        for (int i = 1; i <= length; i++) {
-            days.add(currentMonth.atDay(i));
-        }
-
-        List<Transaction> allList = viewModel.getAllTransactions().getValue();
-        List<Transaction> currentList = allList != null ? allList : new ArrayList<>();
-
-        // 2. 更新 Adapter (保持不变)
-        adapter.updateData(days, currentList);
-
-        // --- 新增：计算本月总计 ---
-        calculateMonthTotals(currentList);
+    // 切换月份：只查询该月的按天汇总，结果通过 getCalendarMonth() 回调刷新
+    @Override
+    public void onResume() {
+        super.onResume();
+        // 应用在后台跨过了某个发生日：把到期的重复账单写入
+        viewModel.materializeDueIfDayChanged();
     }
 
-    // 新增：计算逻辑方法
-    private void calculateMonthTotals(List<Transaction> transactions) {
-        double totalIncome = 0;
-        double totalExpense = 0;
-
-        int year = currentMonth.getYear();
-        int month = currentMonth.getMonthValue();
-
-        for (Transaction t : transactions) {
-            // 将时间戳转为 LocalDate
-            LocalDate date = java.time.Instant.ofEpochMilli(t.date)
-                    .atZone(java.time.ZoneId.systemDefault())
-                    .toLocalDate();
+    private void changeMonth(YearMonth month) {
+        currentMonth = month;
+        tvMonthTitle.setText(currentMonth.format(DateTimeFormatter.ofPattern("yyyy年MM月")));
+        viewModel.setMonth(month);
+    }
 
-            // 只统计当前展示月份的数据
-            if (date.getYear() == year && date.getMonthValue() == month) {
-                if (t.type == 1) {
-                    totalIncome += t.amount;
-                } else {
-                    totalExpense += t.amount;
-                }
-            }
-        }
+    // 日历格子与每日净收支都已由 ViewModel 准备好，这里只负责显示
+    private void updateCalendar(CalendarMonth calendar) {
+        tvMonthTitle.setText(calendar.month.format(DateTimeFormatter.ofPattern("yyyy年MM月")));
+        adapter.updateData(calendar.days, calendar.dayNet);
+    }
 
-        double balance = totalIncome - totalExpense;
+    // 本月合计 (来自 daily_totals，不再遍历账单)
+    private void showMonthTotals(PeriodTotal total) {
+        long balance = total.income - total.expense;
 
         // 更新 UI
-        tvIncome.setText(String.format("+%.0f", totalIncome));
-        tvExpense.setText(String.format("-%.0f", totalExpense));
+        tvIncome.setText("+" + Money.format(total.income));
+        tvExpense.setText("-" + Money.format(total.expense));
 
         String sign = balance >= 0 ? "+" : "";
-        tvBalance.setText(String.format("%s%.0f", sign, balance));
+        tvBalance.setText(sign + Money.format(balance));
     }
 
 
@@ -182,17 +173,17 @@ public class RecordFragment extends Fragment {
             showEditDialog(transaction, dialog);
         });
         rvList.setAdapter(listAdapter);
-
-        // 筛选当天数据
-        List<Transaction> all = viewModel.getAllTransactions().getValue();
-        if (all != null) {
-            long start = date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
-            long end = date.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
-            List<Transaction> dayList = all.stream()
-                    .filter(t -> t.date >= start && t.date < end)
-                    .collect(Collectors.toList());
-            listAdapter.setTransactions(dayList);
-        }
+        Observer<List<Category>> names = listAdapter::setCategories;
+        viewModel.getCategories().observe(getViewLifecycleOwner(), names);
+
+        // 当天数据由数据库分页查询，弹窗关闭时取消观察
+        LiveData<PagingData<Transaction>> dayPages = viewModel.getTransactionPages(PeriodWindow.ofDay(date));
+        dayPages.observe(getViewLifecycleOwner(),
+                pages -> listAdapter.submitData(getViewLifecycleOwner().getLifecycle(), pages));
+        dialog.setOnDismissListener(d -> {
+            dayPages.removeObservers(getViewLifecycleOwner());
+            viewModel.getCategories().removeObserver(names);
+        });
 
         // 添加按钮
         dialogView.findViewById(R.id.btn_add_new).setOnClickListener(v -> {
@@ -203,6 +194,106 @@ public class RecordFragment extends Fragment {
         dialog.show();
     }
 
+    // --- 搜索弹窗：按 分类名 / 备注 / 商家 全文检索，点击结果可修改或删除 ---
+    private void showSearchDialog() {
+        AlertDialog.Builder builder = new AlertDialog.Builder(getContext());
+        View dialogView = LayoutInflater.from(getContext()).inflate(R.layout.dialog_search, null);
+        builder.setView(dialogView);
+        AlertDialog dialog = builder.create();
+        if (dialog.getWindow() != null) dialog.getWindow().setBackgroundDrawable(new ColorDrawable(Color.TRANSPARENT));
+
+        RecyclerView rvResults = dialogView.findViewById(R.id.rv_search_results);
+        rvResults.setLayoutManager(new LinearLayoutManager(getContext()));
+        TransactionListAdapter listAdapter = new TransactionListAdapter(transaction -> showEditDialog(transaction, dialog));
+        rvResults.setAdapter(listAdapter);
+        Observer<List<Category>> names = listAdapter::setCategories;
+        viewModel.getCategories().observe(getViewLifecycleOwner(), names);
+
+        viewModel.setSearchQuery(null);
+        Observer<PagingData<Transaction>> results =
+                pages -> listAdapter.submitData(getViewLifecycleOwner().getLifecycle(), pages);
+        viewModel.getSearchResults().observe(getViewLifecycleOwner(), results);
+
+        // 防抖：每次输入都把待执行的查询往后推，停下来 SEARCH_DEBOUNCE_MS 后才真正查询
+        EditText etSearch = dialogView.findViewById(R.id.et_search);
+        Runnable search = () -> viewModel.setSearchQuery(etSearch.getText().toString());
+        etSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) { }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) { }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                etSearch.removeCallbacks(search);
+                etSearch.postDelayed(search, SEARCH_DEBOUNCE_MS);
+            }
+        });
+
+        dialog.setOnDismissListener(d -> {
+            etSearch.removeCallbacks(search);
+            viewModel.getSearchResults().removeObserver(results);
+            viewModel.getCategories().removeObserver(names);
+        });
+        dialogView.findViewById(R.id.btn_close_search).setOnClickListener(v -> dialog.dismiss());
+        dialog.show();
+    }
+
+    // --- 重复记账规则：列出全部规则，点击可删除 (之后不再入账，已入账的保留) ---
+    private void showRecurringRulesDialog() {
+        LiveData<List<RecurringRule>> rules = viewModel.getRecurringRules();
+        rules.observe(getViewLifecycleOwner(), new Observer<List<RecurringRule>>() {
+            @Override
+            public void onChanged(List<RecurringRule> list) {
+                rules.removeObserver(this);
+                if (list.isEmpty()) {
+                    Toast.makeText(getContext(), "还没有重复记账，记账时勾选 \"每月重复\" 即可添加", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                String[] items = new String[list.size()];
+                for (int i = 0; i < items.length; i++) items[i] = describeRule(list.get(i));
+                new AlertDialog.Builder(getContext())
+                        .setTitle("重复记账 (点击删除)")
+                        .setItems(items, (d, which) -> confirmDeleteRule(list.get(which), items[which]))
+                        .setNegativeButton("关闭", null)
+                        .show();
+            }
+        });
+    }
+
+    private void confirmDeleteRule(RecurringRule rule, String description) {
+        new AlertDialog.Builder(getContext())
+                .setTitle("删除重复记账")
+                .setMessage(description + "\n\n删除后不再自动记账，已记入的账单保留。")
+                .setPositiveButton("删除", (d, w) -> {
+                    viewModel.deleteRecurringRule(rule);
+                    Toast.makeText(getContext(), "已删除", Toast.LENGTH_SHORT).show();
+                })
+                .setNegativeButton("取消", null)
+                .show();
+    }
+
+    // 如 "每月 15 日  饮食  -30.00  午饭"
+    private String describeRule(RecurringRule rule) {
+        LocalDate start = LocalDate.ofEpochDay(rule.startDay);
+        String every = rule.interval > 1 ? "每" + rule.interval : "每";
+        String when;
+        if (rule.frequency == Recurrence.WEEKLY) {
+            when = every + "周" + "一二三四五六日".charAt(start.getDayOfWeek().getValue() - 1);
+        } else if (rule.frequency == Recurrence.YEARLY) {
+            when = every + "年 " + start.getMonthValue() + " 月 " + start.getDayOfMonth() + " 日";
+        } else {
+            when = every + (rule.interval > 1 ? "个" : "") + "月 " + start.getDayOfMonth() + " 日";
+        }
+        String category = "";
+        for (Category c : categories) {
+            if (c.id == rule.categoryId) category = c.name;
+        }
+        String text = when + "  " + category + "  " + (rule.type == 1 ? "+" : "-") + Money.toPlainString(rule.amount);
+        return rule.note != null ? text + "  " + rule.note : text;
+    }
+
     // --- 新增：编辑/删除 选择弹窗 ---
     private void showEditDialog(Transaction t, AlertDialog parentDialog) {
         AlertDialog.Builder builder = new AlertDialog.Builder(getContext());
@@ -211,7 +302,7 @@ public class RecordFragment extends Fragment {
                     if (which == 0) {
                         // 修改
                         parentDialog.dismiss();
-                        LocalDate date = Instant.ofEpochMilli(t.date).atZone(ZoneId.systemDefault()).toLocalDate();
+                        LocalDate date = LocalDate.ofEpochDay(t.dayKey);
                         showAddOrEditDialog(t, date);
                     } else {
                         // 删除
@@ -238,54 +329,108 @@ public class RecordFragment extends Fragment {
         RadioGroup rgType = dialogView.findViewById(R.id.rg_type);
         RadioGroup rgCategory = dialogView.findViewById(R.id.rg_category);
         EditText etAmount = dialogView.findViewById(R.id.et_amount);
+        EditText etNote = dialogView.findViewById(R.id.et_note);
+        EditText etPayee = dialogView.findViewById(R.id.et_payee);
+        CheckBox cbRepeat = dialogView.findViewById(R.id.cb_repeat_monthly);
         Button btnSave = dialogView.findViewById(R.id.btn_save);
 
-        rgType.setOnCheckedChangeListener((g, id) -> rgCategory.setVisibility(id == R.id.rb_expense ? View.VISIBLE : View.GONE));
+        // 分类选项按分类表和当前收支类型生成，category_id 放在 tag 里；编辑时选中原分类，否则选第一个。
+        // 分类表还没读出来时先禁用保存，读出后再生成选项 (否则只能存一个不存在的分类 id)
+        int selected = existingTransaction != null ? existingTransaction.categoryId : -1;
+        rgType.setOnCheckedChangeListener((g, id) -> fillCategories(rgCategory, id == R.id.rb_income ? 1 : 0, selected));
+        btnSave.setEnabled(false);
+        LiveData<List<Category>> categoryData = viewModel.getCategories();
+        Observer<List<Category>> categoryObserver = list -> {
+            categories = list;
+            fillCategories(rgCategory, rgType.getCheckedRadioButtonId() == R.id.rb_income ? 1 : 0, selected);
+            btnSave.setEnabled(!list.isEmpty());
+        };
+        categoryData.observe(getViewLifecycleOwner(), categoryObserver);
+        dialog.setOnDismissListener(d -> categoryData.removeObserver(categoryObserver));
 
         // 如果是编辑模式，回填数据
         if (existingTransaction != null) {
             btnSave.setText("保存修改");
-            etAmount.setText(String.valueOf(existingTransaction.amount));
+            cbRepeat.setVisibility(View.GONE);
+            etAmount.setText(Money.toPlainString(existingTransaction.amount));
+            etNote.setText(existingTransaction.note);
+            etPayee.setText(existingTransaction.payee);
             if (existingTransaction.type == 1) {
                 rgType.check(R.id.rb_income);
             } else {
                 rgType.check(R.id.rb_expense);
-                // 简单回填分类 (实际项目可能需要遍历 RadioButton 比较 text)
-                switch (existingTransaction.category) {
-                    case "饮食": rgCategory.check(R.id.rb_food); break;
-                    case "娱乐": rgCategory.check(R.id.rb_fun); break;
-                    case "教育": rgCategory.check(R.id.rb_edu); break;
-                    case "网购": rgCategory.check(R.id.rb_shop); break;
-                }
             }
         }
 
         btnSave.setOnClickListener(v -> {
             String amountStr = etAmount.getText().toString();
             if (!amountStr.isEmpty()) {
-                double amount = Double.parseDouble(amountStr);
+                long amount = Money.parse(amountStr);
                 int type = rgType.getCheckedRadioButtonId() == R.id.rb_income ? 1 : 0;
-                String category = "收入";
-                if (type == 0) {
-                    int catId = rgCategory.getCheckedRadioButtonId();
-                    RadioButton rb = dialogView.findViewById(catId);
-                    if(rb != null) category = rb.getText().toString();
-                }
+                RadioButton rb = rgCategory.findViewById(rgCategory.getCheckedRadioButtonId());
+                int category = rb != null ? (Integer) rb.getTag() : categoryId(Category.OTHER, type);
 
                 long ts = date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
-                
-                if (existingTransaction == null) {
+                Transaction t = new Transaction(ts, type, category, amount);
+                t.note = textOrNull(etNote);
+                t.payee = textOrNull(etPayee);
+
+                if (existingTransaction == null && cbRepeat.isChecked()) {
+                    // 每月重复：存为规则，到期的发生日 (含今天及以前) 由规则写成账单
+                    RecurringRule rule = new RecurringRule(type, category, amount,
+                            Recurrence.MONTHLY, 1, date.toEpochDay());
+                    rule.note = t.note;
+                    rule.payee = t.payee;
+                    viewModel.addRecurringRule(rule);
+                } else if (existingTransaction == null) {
                     // 新增
-                    viewModel.addTransaction(new Transaction(ts, type, category, amount));
+                    viewModel.addTransaction(t);
                 } else {
                     // 修改：保持 ID 不变，更新内容
-                    Transaction updateT = new Transaction(ts, type, category, amount);
-                    updateT.id = existingTransaction.id; 
-                    viewModel.updateTransaction(updateT);
+                    t.id = existingTransaction.id;
+                    viewModel.updateTransaction(t);
                 }
                 dialog.dismiss();
             }
         });
         dialog.show();
     }
-}
\ No newline at end of file
+
+    // 按分类表重新生成 type 这一组的选项。分类表再次发出 (比如别处新增了分类) 时保留用户已选的分类；
+    // RadioGroup 清空子视图后仍记着旧的选中 id，需先 clearCheck，否则保存时取不到选项
+    private void fillCategories(RadioGroup group, int type, int preferred) {
+        View checked = group.findViewById(group.getCheckedRadioButtonId());
+        int keep = checked != null ? (Integer) checked.getTag() : preferred;
+        group.clearCheck();
+        group.removeAllViews();
+        int paddingEnd = (int) (12 * getResources().getDisplayMetrics().density);
+        for (Category c : categories) {
+            if (c.type != type) continue;
+            RadioButton rb = new RadioButton(getContext());
+            rb.setId(View.generateViewId());
+            rb.setText(c.name);
+            rb.setTag(c.id);
+            rb.setPaddingRelative(0, 0, paddingEnd, 0);
+            rb.setTextColor(ContextCompat.getColor(requireContext(), R.color.text_secondary));
+            group.addView(rb);
+            if (group.getCheckedRadioButtonId() == View.NO_ID || c.id == keep) group.check(rb.getId());
+        }
+    }
+
+    private static String textOrNull(EditText editText) {
+        String text = editText.getText().toString().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    // 按名称查分类 id；只在分类表读出后调用 (保存按钮此前是禁用的)。
+    // 默认分类被改名时退回同类型的第一个分类
+    private int categoryId(String name, int type) {
+        for (Category c : categories) {
+            if (c.name.equals(name)) return c.id;
+        }
+        for (Category c : categories) {
+            if (c.type == type) return c.id;
+        }
+        return categories.get(0).id;
+    }
+}
@@ -0,0 +1,400 @@
+package com.example.budgetapp.ui;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+
+import androidx.core.content.ContextCompat;
+
+import com.example.budgetapp.R;
+import com.example.budgetapp.analytics.TrendSeries;
+import com.example.budgetapp.database.CategoryTotal;
+import com.example.budgetapp.database.Money;
+import com.example.budgetapp.viewmodel.ChartSeries;
+import com.example.budgetapp.viewmodel.StatsPeriod;
+import com.example.budgetapp.viewmodel.TrendChart;
+import com.github.mikephil.charting.charts.LineChart;
+import com.github.mikephil.charting.charts.PieChart;
+import com.github.mikephil.charting.components.XAxis;
+import com.github.mikephil.charting.data.Entry;
+import com.github.mikephil.charting.data.LineData;
+import com.github.mikephil.charting.data.LineDataSet;
+import com.github.mikephil.charting.data.PieData;
+import com.github.mikephil.charting.data.PieDataSet;
+import com.github.mikephil.charting.data.PieEntry;
+import com.github.mikephil.charting.formatter.ValueFormatter;
+import com.github.mikephil.charting.listener.ChartTouchListener;
+import com.github.mikephil.charting.listener.OnChartGestureListener;
+
+import java.text.DecimalFormat;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 统计页两张图表的数据绑定。LineData / PieData 及其 DataSet 只创建一次，
+ * 每次刷新原地改写 Entry (对象池复用) 后 notifyDataChanged；颜色、格式化器在构造时准备好。
+ * 快速翻页时跳过动画，只有停下来后的周期切换才播放。
+ * 长周期趋势 (近 N 年 / 全部) 的横轴为 epochDay，可缩放拖动：每帧至多按可见范围重新取样一次，
+ * 点数与图表像素宽度相当 (见 TrendSeries)，十年数据缩放拖动时每帧只处理几百个点。
+ */
+final class StatsChartPresenter {
+    // 距上一次周期切换不足该时长则视为连续翻页，不播放动画
+    private static final long ANIMATION_MIN_INTERVAL_MS = 400;
+    private static final String[] WEEK_LABELS = {"", "周一", "周二", "周三", "周四", "周五", "周六", "周日"};
+    // 趋势图每个点约占的像素数，以及可见范围内的最少点数 (布局完成前宽度为 0)
+    private static final float TREND_PX_PER_POINT = 3f;
+    private static final int TREND_MIN_POINTS = 100;
+    // 趋势图最多放大到可见两周
+    private static final float TREND_MIN_VISIBLE_DAYS = 14f;
+
+    private final LineChart lineChart;
+    private final PieChart pieChart;
+    private final CustomMarkerView markerView;
+
+    private final LineData lineData;
+    private final LineDataSet incomeSet;
+    private final LineDataSet expenseSet;
+    private final LineDataSet netSet;
+    private final List<Entry> incomeEntries = new ArrayList<>();
+    private final List<Entry> expenseEntries = new ArrayList<>();
+    private final List<Entry> netEntries = new ArrayList<>();
+    private final List<Entry> incomePool = new ArrayList<>();
+    private final List<Entry> expensePool = new ArrayList<>();
+    private final List<Entry> netPool = new ArrayList<>();
+    private final AxisLabels axisLabels = new AxisLabels();
+
+    private final PieData pieData;
+    private final PieDataSet pieSet;
+    private final List<PieEntry> pieEntries = new ArrayList<>();
+    private final List<PieEntry> piePool = new ArrayList<>();
+
+    private final TrendSeries.Sample sample = new TrendSeries.Sample();
+    private final TrendAxisLabels trendLabels = new TrendAxisLabels();
+    private TrendChart trend;
+    private boolean resampleScheduled;
+
+    // 当前显示的周期 (StatsPeriod) 或趋势范围 (TrendRange)
+    private Object shownKey;
+    private long lastPeriodChange;
+
+    StatsChartPresenter(Context context, LineChart lineChart, PieChart pieChart, CustomMarkerView markerView) {
+        this.lineChart = lineChart;
+        this.pieChart = pieChart;
+        this.markerView = markerView;
+
+        incomeSet = lineDataSet(incomeEntries, "收入", ContextCompat.getColor(context, R.color.income_red));
+        expenseSet = lineDataSet(expenseEntries, "支出", ContextCompat.getColor(context, R.color.expense_green));
+        netSet = lineDataSet(netEntries, "净收支", ContextCompat.getColor(context, R.color.fixed_yellow));
+        netSet.enableDashedLine(10f, 5f, 0f);
+        lineData = new LineData(incomeSet, expenseSet, netSet);
+        lineChart.getXAxis().setValueFormatter(axisLabels);
+        lineChart.setData(lineData);
+
+        pieSet = new PieDataSet(pieEntries, "");
+        pieSet.setColors(
+                ContextCompat.getColor(context, R.color.pie_food),
+                ContextCompat.getColor(context, R.color.pie_fun),
+                ContextCompat.getColor(context, R.color.pie_edu),
+                ContextCompat.getColor(context, R.color.pie_shop));
+        pieSet.setValueTextSize(12f);
+        pieSet.setValueFormatter(new PercentLabels());
+        pieData = new PieData(pieSet);
+        pieChart.setUsePercentValues(true);
+        pieChart.setData(pieData);
+
+        lineChart.setOnChartGestureListener(new ViewportListener());
+    }
+
+    private static LineDataSet lineDataSet(List<Entry> entries, String label, int color) {
+        LineDataSet set = new LineDataSet(entries, label);
+        set.setColor(color);
+        set.setCircleColor(color);
+        set.setLineWidth(2f);
+        set.setDrawValues(false);
+        return set;
+    }
+
+    void render(ChartSeries series) {
+        boolean animate = show(series.period);
+        if (trend != null) leaveTrend();
+
+        renderLine(series);
+        renderPie(series.categories);
+        draw(animate);
+    }
+
+    void renderTrend(TrendChart chart) {
+        boolean sameRange = trend != null && trend.range.equals(chart.range);
+        boolean animate = show(chart.range);
+        trend = chart;
+        TrendSeries series = chart.series;
+
+        lineChart.setDrawMarkers(false);
+        lineChart.setScaleXEnabled(true);
+        XAxis xAxis = lineChart.getXAxis();
+        xAxis.setValueFormatter(trendLabels);
+        xAxis.setAxisMinimum((float) series.startDay);
+        xAxis.setAxisMaximum((float) (series.endDay - 1));
+        xAxis.setLabelCount(5);
+
+        if (sameRange) {
+            // 数据变动：保持当前缩放位置，只重新取样可见部分
+            resample();
+        } else {
+            lineChart.fitScreen();
+            trendLabels.spanDays = series.endDay - series.startDay;
+            fillTrend(series.startDay, series.endDay, trendPoints());
+            lineChart.setVisibleXRangeMinimum(TREND_MIN_VISIBLE_DAYS);
+        }
+        renderPie(chart.categories);
+        draw(animate);
+    }
+
+    // 同一周期的数据变动 (记账、删除) 不播放动画；周期切换只在翻页停下后播放
+    private boolean show(Object key) {
+        if (key.equals(shownKey)) return false;
+        long now = SystemClock.uptimeMillis();
+        boolean animate = shownKey == null || now - lastPeriodChange >= ANIMATION_MIN_INTERVAL_MS;
+        lastPeriodChange = now;
+        shownKey = key;
+        return animate;
+    }
+
+    private void draw(boolean animate) {
+        if (animate) {
+            lineChart.animateX(600);
+            pieChart.animateY(800);
+        } else {
+            lineChart.invalidate();
+            pieChart.invalidate();
+        }
+    }
+
+    // 从趋势切回年/月/周：恢复不可缩放的整屏视图与点击气泡
+    private void leaveTrend() {
+        trend = null;
+        lineChart.setDrawMarkers(true);
+        lineChart.setScaleXEnabled(false);
+        lineChart.fitScreen();
+        lineChart.getViewPortHandler().setMinimumScaleX(1f);
+        lineChart.getXAxis().setValueFormatter(axisLabels);
+    }
+
+    // 按数据所属周期的模式渲染 (而不是当前选中的模式)，避免切换途中错位
+    private void renderLine(ChartSeries series) {
+        int maxX = series.maxX;
+        String suffix;
+        String[] labels = null;
+        if (series.period.mode == StatsPeriod.MODE_YEAR) {
+            suffix = "月";
+        } else if (series.period.mode == StatsPeriod.MODE_MONTH) {
+            suffix = "日";
+        } else {
+            suffix = "";
+            labels = WEEK_LABELS;
+        }
+
+        incomeEntries.clear();
+        expenseEntries.clear();
+        netEntries.clear();
+        for (int i = 1; i <= maxX; i++) {
+            long in = series.income[i];
+            long out = series.expense[i];
+
+            // 金额以分累加，只在这里转为 float 交给图表
+            if (in != 0) incomeEntries.add(entry(incomePool, incomeEntries.size(), i, Money.toFloat(in)));
+            if (out != 0) expenseEntries.add(entry(expensePool, expenseEntries.size(), i, Money.toFloat(out)));
+
+            // 只要有收支就显示净值点
+            if (in != 0 || out != 0) {
+                netEntries.add(entry(netPool, netEntries.size(), i, Money.toFloat(in - out)));
+            }
+        }
+        incomeSet.notifyDataSetChanged();
+        expenseSet.notifyDataSetChanged();
+        netSet.notifyDataSetChanged();
+        lineData.notifyDataChanged();
+
+        XAxis xAxis = lineChart.getXAxis();
+        xAxis.setAxisMinimum(1f);
+        xAxis.setAxisMaximum((float) maxX);
+        xAxis.setLabelCount(maxX <= 12 ? maxX : 6);
+        axisLabels.set(maxX, suffix, labels);
+
+        if (markerView != null) {
+            markerView.setSourceData(series.income, series.expense, suffix, labels);
+        }
+        lineChart.notifyDataSetChanged();
+    }
+
+    private void renderPie(List<CategoryTotal> totals) {
+        pieEntries.clear();
+        for (CategoryTotal c : totals) {
+            int n = pieEntries.size();
+            PieEntry e;
+            if (n < piePool.size()) {
+                e = piePool.get(n);
+                e.setY(Money.toFloat(c.total));
+                e.setLabel(c.category);
+                e.setData(c.categoryId);
+            } else {
+                e = new PieEntry(Money.toFloat(c.total), c.category, c.categoryId);
+                piePool.add(e);
+            }
+            pieEntries.add(e);
+        }
+        pieSet.notifyDataSetChanged();
+        pieData.notifyDataChanged();
+        pieChart.notifyDataSetChanged();
+    }
+
+    // --- 长周期趋势 ---
+
+    // 可见范围对应的点数：图表内容宽度 / 每点像素
+    private int trendPoints() {
+        return Math.max(TREND_MIN_POINTS, (int) (lineChart.getViewPortHandler().contentWidth() / TREND_PX_PER_POINT));
+    }
+
+    // 缩放、拖动 (含惯性滑动) 时调用；合并到下一帧，每帧至多取样一次
+    private void scheduleResample() {
+        if (trend == null || resampleScheduled) return;
+        resampleScheduled = true;
+        lineChart.postOnAnimation(() -> {
+            resampleScheduled = false;
+            if (trend == null) return;
+            resample();
+            lineChart.invalidate();
+        });
+    }
+
+    // 按当前可见范围重新取样，左右各多取半屏，拖动到下一帧取样前边缘也有数据
+    private void resample() {
+        float low = lineChart.getLowestVisibleX();
+        float high = lineChart.getHighestVisibleX();
+        float half = (high - low) / 2f;
+        long from = (long) Math.floor(low - half);
+        long to = (long) Math.ceil(high + half) + 1;
+        trendLabels.spanDays = high - low;
+        fillTrend(from, to, trendPoints() * 2);
+    }
+
+    private void fillTrend(long fromDay, long toDay, int maxPoints) {
+        fillSeries(TrendSeries.INCOME, fromDay, toDay, maxPoints, incomeEntries, incomePool);
+        fillSeries(TrendSeries.EXPENSE, fromDay, toDay, maxPoints, expenseEntries, expensePool);
+        fillSeries(TrendSeries.NET, fromDay, toDay, maxPoints, netEntries, netPool);
+        incomeSet.notifyDataSetChanged();
+        expenseSet.notifyDataSetChanged();
+        netSet.notifyDataSetChanged();
+        lineData.notifyDataChanged();
+        lineChart.notifyDataSetChanged();
+    }
+
+    private void fillSeries(int which, long fromDay, long toDay, int maxPoints,
+                            List<Entry> entries, List<Entry> pool) {
+        trend.series.sample(which, fromDay, toDay, maxPoints, sample);
+        entries.clear();
+        for (int i = 0; i < sample.size; i++) {
+            entries.add(entry(pool, i, sample.x[i], Money.toFloat(sample.y[i])));
+        }
+    }
+
+    // 取出池中第 index 个 Entry 改写坐标，池不够时才分配
+    private static Entry entry(List<Entry> pool, int index, float x, float y) {
+        if (index < pool.size()) {
+            Entry e = pool.get(index);
+            e.setX(x);
+            e.setY(y);
+            return e;
+        }
+        Entry e = new Entry(x, y);
+        pool.add(e);
+        return e;
+    }
+
+    // 横轴标签：按周期改写字段，不再每次刷新新建匿名类
+    private static final class AxisLabels extends ValueFormatter {
+        private int maxX;
+        private String suffix = "";
+        private String[] labels;
+        private final String[] cache = new String[32];
+
+        void set(int maxX, String suffix, String[] labels) {
+            if (this.maxX == maxX && this.suffix.equals(suffix) && this.labels == labels) return;
+            this.maxX = maxX;
+            this.suffix = suffix;
+            this.labels = labels;
+            Arrays.fill(cache, null);
+        }
+
+        @Override
+        public String getFormattedValue(float value) {
+            int index = (int) value;
+            if (index < 1 || index > maxX) return "";
+            if (labels != null) return index < labels.length ? labels[index] : "";
+            if (index >= cache.length) return index + suffix;
+            // 每帧都会调用，标签按下标缓存，避免绘制时拼接字符串
+            String label = cache[index];
+            if (label == null) cache[index] = label = index + suffix;
+            return label;
+        }
+    }
+
+    // 趋势图横轴 (epochDay)：按可见跨度显示 年 / 年月 / 月日
+    private static final class TrendAxisLabels extends ValueFormatter {
+        float spanDays;
+
+        @Override
+        public String getFormattedValue(float value) {
+            LocalDate date = LocalDate.ofEpochDay((long) value);
+            if (spanDays > 3 * 365) return date.getYear() + "年";
+            if (spanDays > 90) return date.getYear() + "年" + date.getMonthValue() + "月";
+            return date.getMonthValue() + "月" + date.getDayOfMonth() + "日";
+        }
+    }
+
+    // 缩放、拖动后重新取样；其余手势不关心
+    private final class ViewportListener implements OnChartGestureListener {
+        @Override
+        public void onChartScale(MotionEvent me, float scaleX, float scaleY) {
+            scheduleResample();
+        }
+
+        @Override
+        public void onChartTranslate(MotionEvent me, float dX, float dY) {
+            scheduleResample();
+        }
+
+        @Override
+        public void onChartDoubleTapped(MotionEvent me) {
+            scheduleResample();
+        }
+
+        @Override
+        public void onChartGestureEnd(MotionEvent me, ChartTouchListener.ChartGesture lastPerformedGesture) {
+            scheduleResample();
+        }
+
+        @Override
+        public void onChartGestureStart(MotionEvent me, ChartTouchListener.ChartGesture lastPerformedGesture) { }
+
+        @Override
+        public void onChartLongPressed(MotionEvent me) { }
+
+        @Override
+        public void onChartSingleTapped(MotionEvent me) { }
+
+        @Override
+        public void onChartFling(MotionEvent me1, MotionEvent me2, float velocityX, float velocityY) { }
+    }
+
+    private static final class PercentLabels extends ValueFormatter {
+        private final DecimalFormat format = new DecimalFormat("0.0'%'");
+
+        @Override
+        public String getFormattedValue(float value) {
+            return format.format(value);
+        }
+    }
+}
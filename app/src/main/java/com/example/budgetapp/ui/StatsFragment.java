@@ -16,39 +16,36 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat; // 引入 ContextCompat
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.paging.PagingData;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.budgetapp.R;
+import com.example.budgetapp.database.Category;
 import com.example.budgetapp.database.Transaction;
+import com.example.budgetapp.viewmodel.ChartSeries;
 import com.example.budgetapp.viewmodel.FinanceViewModel;
+import com.example.budgetapp.viewmodel.PeriodWindow;
+import com.example.budgetapp.viewmodel.StatsPeriod;
+import com.example.budgetapp.viewmodel.TrendChart;
+import com.example.budgetapp.viewmodel.TrendRange;
 import com.github.mikephil.charting.charts.LineChart;
 import com.github.mikephil.charting.charts.PieChart;
 import com.github.mikephil.charting.components.Legend;
 import com.github.mikephil.charting.components.XAxis;
 import com.github.mikephil.charting.data.Entry;
-import com.github.mikephil.charting.data.LineData;
-import com.github.mikephil.charting.data.LineDataSet;
-import com.github.mikephil.charting.data.PieData;
-import com.github.mikephil.charting.data.PieDataSet;
 import com.github.mikephil.charting.data.PieEntry;
-import com.github.mikephil.charting.formatter.ValueFormatter;
 import com.github.mikephil.charting.highlight.Highlight;
 import com.github.mikephil.charting.listener.OnChartValueSelectedListener;
 
-import java.time.DayOfWeek;
-import java.time.Instant;
 import java.time.LocalDate;
-import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.TemporalAdjusters;
 import java.time.temporal.WeekFields;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 
 public class StatsFragment extends Fragment {
 
@@ -57,12 +54,17 @@ public class StatsFragment extends Fragment {
     private PieChart pieChart;
     private RadioGroup rgTimeScope;
     private TextView tvDateRange;
+    private ImageButton btnPrev;
+    private ImageButton btnNext;
 
-    // 模式：0=Year, 1=Month, 2=Week
+    // 模式：0=Year, 1=Month, 2=Week (同 StatsPeriod)；3=近 TREND_YEARS 年, 4=全部 (长周期趋势)
+    private static final int MODE_TREND_YEARS = 3;
+    private static final int MODE_TREND_ALL = 4;
+    private static final int TREND_YEARS = 5;
     private int currentMode = 2;
     private LocalDate selectedDate = LocalDate.now();
-    private List<Transaction> allTransactions = new ArrayList<>();
     private CustomMarkerView markerView;
+    private StatsChartPresenter chartPresenter;
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -72,14 +74,21 @@ public class StatsFragment extends Fragment {
         setupLineChart();
         setupPieChart();
 
+        // 图表对象只建一次，之后每次刷新都原地改写数据
+        chartPresenter = new StatsChartPresenter(requireContext(), lineChart, pieChart, markerView);
+
         viewModel = new ViewModelProvider(requireActivity()).get(FinanceViewModel.class);
-        viewModel.getAllTransactions().observe(getViewLifecycleOwner(), list -> {
-            this.allTransactions = list;
-            refreshData();
+        // 图表数据在 ViewModel 的计算线程上按周期聚合，周期变化或数据变动时回调；
+        // 两路数据都保持观察，只渲染与当前模式对应的那一路
+        viewModel.getChartSeries().observe(getViewLifecycleOwner(), series -> {
+            if (!isTrendMode()) chartPresenter.render(series);
+        });
+        viewModel.getTrendChart().observe(getViewLifecycleOwner(), trend -> {
+            if (isTrendMode()) chartPresenter.renderTrend(trend);
         });
 
         setupListeners(view);
-        updateDateRangeDisplay();
+        onPeriodChanged();
 
         return view;
     }
@@ -89,24 +98,27 @@ public class StatsFragment extends Fragment {
         pieChart = view.findViewById(R.id.chart_pie);
         rgTimeScope = view.findViewById(R.id.rg_time_scope);
         tvDateRange = view.findViewById(R.id.tv_current_date_range);
+        btnPrev = view.findViewById(R.id.btn_prev);
+        btnNext = view.findViewById(R.id.btn_next);
     }
 
     private void setupListeners(View view) {
-        ImageButton btnPrev = view.findViewById(R.id.btn_prev);
-        ImageButton btnNext = view.findViewById(R.id.btn_next);
 
         rgTimeScope.setOnCheckedChangeListener((group, checkedId) -> {
             if (checkedId == R.id.rb_year) currentMode = 0;
             else if (checkedId == R.id.rb_month) currentMode = 1;
             else if (checkedId == R.id.rb_week) currentMode = 2;
+            else if (checkedId == R.id.rb_trend_years) currentMode = MODE_TREND_YEARS;
+            else if (checkedId == R.id.rb_trend_all) currentMode = MODE_TREND_ALL;
 
-            updateDateRangeDisplay();
-            refreshData();
+            onPeriodChanged();
         });
 
         btnPrev.setOnClickListener(v -> changeDate(-1));
         btnNext.setOnClickListener(v -> changeDate(1));
-        tvDateRange.setOnClickListener(v -> showDatePicker());
+        tvDateRange.setOnClickListener(v -> {
+            if (!isTrendMode()) showDatePicker();
+        });
     }
 
     // --- 图表初始化 ---
@@ -159,8 +171,8 @@ public class StatsFragment extends Fragment {
         pieChart.setOnChartValueSelectedListener(new OnChartValueSelectedListener() {
             @Override
             public void onValueSelected(Entry e, Highlight h) {
-                String category = ((PieEntry) e).getLabel();
-                showCategoryDetailDialog(category);
+                PieEntry entry = (PieEntry) e;
+                showCategoryDetailDialog((Integer) entry.getData(), entry.getLabel());
             }
 
             @Override
@@ -175,12 +187,42 @@ public class StatsFragment extends Fragment {
         else if (currentMode == 1) selectedDate = selectedDate.plusMonths(offset);
         else selectedDate = selectedDate.plusWeeks(offset);
 
+        onPeriodChanged();
+    }
+
+    private boolean isTrendMode() {
+        return currentMode == MODE_TREND_YEARS || currentMode == MODE_TREND_ALL;
+    }
+
+    // 周期变化：更新标题并切换查询窗口，数据返回后在 observer 中刷新图表。
+    // 切回的周期与已有结果相同时不会再回调，直接渲染现有结果
+    private void onPeriodChanged() {
         updateDateRangeDisplay();
-        refreshData();
+        if (isTrendMode()) {
+            TrendRange range = currentMode == MODE_TREND_ALL
+                    ? TrendRange.allTime(LocalDate.now()) : TrendRange.lastYears(TREND_YEARS, LocalDate.now());
+            viewModel.setTrendRange(range);
+            TrendChart shown = viewModel.getTrendChart().getValue();
+            if (shown != null && shown.range.equals(range)) chartPresenter.renderTrend(shown);
+        } else {
+            StatsPeriod period = StatsPeriod.of(currentMode, selectedDate);
+            viewModel.setStatsPeriod(period);
+            ChartSeries shown = viewModel.getChartSeries().getValue();
+            if (shown != null && shown.period.equals(period)) chartPresenter.render(shown);
+        }
     }
 
     private void updateDateRangeDisplay() {
-        if (currentMode == 0) {
+        // 趋势模式靠缩放拖动浏览，不用翻页
+        int nav = isTrendMode() ? View.INVISIBLE : View.VISIBLE;
+        btnPrev.setVisibility(nav);
+        btnNext.setVisibility(nav);
+
+        if (currentMode == MODE_TREND_YEARS) {
+            tvDateRange.setText("近" + TREND_YEARS + "年");
+        } else if (currentMode == MODE_TREND_ALL) {
+            tvDateRange.setText("全部");
+        } else if (currentMode == 0) {
             tvDateRange.setText(selectedDate.format(DateTimeFormatter.ofPattern("yyyy年")));
         } else if (currentMode == 1) {
             tvDateRange.setText(selectedDate.format(DateTimeFormatter.ofPattern("yyyy年MM月")));
@@ -194,207 +236,23 @@ public class StatsFragment extends Fragment {
     private void showDatePicker() {
         DatePickerDialog datePicker = new DatePickerDialog(requireContext(), (view, year, month, dayOfMonth) -> {
             selectedDate = LocalDate.of(year, month + 1, dayOfMonth);
-            updateDateRangeDisplay();
-            refreshData();
+            onPeriodChanged();
         }, selectedDate.getYear(), selectedDate.getMonthValue() - 1, selectedDate.getDayOfMonth());
         datePicker.show();
     }
 
-    // --- 数据处理逻辑 (保持原样) ---
-
-    private void refreshData() {
-        if (allTransactions == null) return;
-        if (currentMode == 0) processYearlyData();
-        else if (currentMode == 1) processMonthlyData();
-        else processWeeklyData();
-    }
-
-    private void processYearlyData() {
-        int year = selectedDate.getYear();
-        aggregateData(t -> {
-            LocalDate date = Instant.ofEpochMilli(t.date).atZone(ZoneId.systemDefault()).toLocalDate();
-            return date.getYear() == year ? date.getMonthValue() : -1;
-        }, 12, "月", null);
-    }
-
-    private void processMonthlyData() {
-        int year = selectedDate.getYear();
-        int month = selectedDate.getMonthValue();
-        int daysInMonth = selectedDate.lengthOfMonth();
-
-        aggregateData(t -> {
-            LocalDate date = Instant.ofEpochMilli(t.date).atZone(ZoneId.systemDefault()).toLocalDate();
-            return (date.getYear() == year && date.getMonthValue() == month) ? date.getDayOfMonth() : -1;
-        }, daysInMonth, "日", null);
-    }
-
-    private void processWeeklyData() {
-        LocalDate startOfWeek = selectedDate.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
-        LocalDate endOfWeek = selectedDate.with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY));
-
-        aggregateData(t -> {
-            LocalDate date = Instant.ofEpochMilli(t.date).atZone(ZoneId.systemDefault()).toLocalDate();
-            if (!date.isBefore(startOfWeek) && !date.isAfter(endOfWeek)) {
-                return date.getDayOfWeek().getValue();
-            }
-            return -1;
-        }, 7, "", new String[]{"", "周一", "周二", "周三", "周四", "周五", "周六", "周日"});
-    }
-
-    interface IndexExtractor {
-        int getIndex(Transaction t);
-    }
-
-    private void aggregateData(IndexExtractor extractor, int maxX, String suffix, String[] customLabels) {
-        Map<Integer, Double> incomeMap = new HashMap<>();
-        Map<Integer, Double> expenseMap = new HashMap<>();
-        Map<String, Double> pieCats = new HashMap<>();
-
-        for (Transaction t : allTransactions) {
-            int index = extractor.getIndex(t);
-            if (index != -1) {
-                if (t.type == 1) {
-                    incomeMap.put(index, incomeMap.getOrDefault(index, 0.0) + t.amount);
-                } else {
-                    expenseMap.put(index, expenseMap.getOrDefault(index, 0.0) + t.amount);
-                    pieCats.put(t.category, pieCats.getOrDefault(t.category, 0.0) + t.amount);
-                }
-            }
-        }
-        updateCharts(incomeMap, expenseMap, pieCats, maxX, suffix, customLabels);
-    }
-
-    private void updateCharts(Map<Integer, Double> incomeMap, Map<Integer, Double> expenseMap,
-                              Map<String, Double> pieMap, int maxX, String suffix, String[] customLabels) {
-
-        List<Entry> inEntries = new ArrayList<>();
-        List<Entry> outEntries = new ArrayList<>();
-        List<Entry> netEntries = new ArrayList<>();
-
-        for (int i = 1; i <= maxX; i++) {
-            double in = incomeMap.getOrDefault(i, 0.0);
-            double out = expenseMap.getOrDefault(i, 0.0);
-
-            if (incomeMap.containsKey(i)) inEntries.add(new Entry(i, (float) in));
-            if (expenseMap.containsKey(i)) outEntries.add(new Entry(i, (float) out));
-
-            // 只要有收支就显示净值点，或者你可以逻辑改为 (in != 0 || out != 0)
-            if (incomeMap.containsKey(i) || expenseMap.containsKey(i)) {
-                netEntries.add(new Entry(i, (float) (in - out)));
-            }
-        }
-
-        LineDataSet setIn = createLineDataSet(inEntries, "收入", R.color.income_red);
-        LineDataSet setOut = createLineDataSet(outEntries, "支出", R.color.expense_green);
-        LineDataSet setNet = createLineDataSet(netEntries, "净收支", R.color.fixed_yellow);
-        setNet.enableDashedLine(10f, 5f, 0f);
-
-        LineData lineData = new LineData(setIn, setOut, setNet);
-        lineChart.setData(lineData);
-
-        XAxis xAxis = lineChart.getXAxis();
-        xAxis.setAxisMinimum(1f);
-        xAxis.setAxisMaximum((float) maxX);
-
-        if (maxX <= 12) {
-            xAxis.setLabelCount(maxX);
-        } else {
-            xAxis.setLabelCount(6);
-        }
-
-        xAxis.setValueFormatter(new ValueFormatter() {
-            @Override
-            public String getFormattedValue(float value) {
-                int index = (int) value;
-                if (index < 1 || index > maxX) return "";
-                if (customLabels != null) {
-                    if (index >= 1 && index < customLabels.length) return customLabels[index];
-                    return "";
-                }
-                return index + suffix;
-            }
-        });
-
-        if (markerView != null) {
-            markerView.setSourceData(incomeMap, expenseMap, customLabels != null ? "" : suffix, customLabels);
-        }
-
-        lineChart.animateX(600);
-        lineChart.invalidate();
-
-        // --- 渲染 PieChart ---
-        List<PieEntry> pieEntries = new ArrayList<>();
-        for (Map.Entry<String, Double> entry : pieMap.entrySet()) {
-            pieEntries.add(new PieEntry(entry.getValue().floatValue(), entry.getKey()));
-        }
-
-        PieDataSet pieSet = new PieDataSet(pieEntries, "");
-        // [修复] 使用 ContextCompat 获取颜色
-        pieSet.setColors(
-                ContextCompat.getColor(requireContext(), R.color.pie_food),
-                ContextCompat.getColor(requireContext(), R.color.pie_fun),
-                ContextCompat.getColor(requireContext(), R.color.pie_edu),
-                ContextCompat.getColor(requireContext(), R.color.pie_shop)
-        );
-        pieSet.setValueTextSize(12f);
-        pieSet.setValueFormatter(new ValueFormatter() {
-            @Override
-            public String getFormattedValue(float value) {
-                return String.format("%.1f%%", value);
-            }
-        });
-
-        PieData pieData = new PieData(pieSet);
-        pieChart.setData(pieData);
-        pieChart.setUsePercentValues(true);
-        pieChart.animateY(800);
-        pieChart.invalidate();
-    }
-
-    private LineDataSet createLineDataSet(List<Entry> entries, String label, int colorResId) {
-        LineDataSet set = new LineDataSet(entries, label);
-        // [修复] 使用 ContextCompat 获取颜色
-        int color = ContextCompat.getColor(requireContext(), colorResId);
-        set.setColor(color);
-        set.setCircleColor(color);
-        set.setLineWidth(2f);
-        set.setDrawValues(false);
-        return set;
-    }
-
     // --- 二级界面：灯箱逻辑 (保持原样) ---
 
-    private void showCategoryDetailDialog(String category) {
-        if (allTransactions == null) return;
-
-        long startMillis, endMillis;
-        LocalDate startFuncDate, endFuncDate;
-        int targetYear = selectedDate.getYear();
-        int targetMonth = selectedDate.getMonthValue();
-
-        if (currentMode == 0) {
-            startFuncDate = LocalDate.of(targetYear, 1, 1);
-            endFuncDate = LocalDate.of(targetYear, 12, 31);
-        } else if (currentMode == 1) {
-            startFuncDate = LocalDate.of(targetYear, targetMonth, 1);
-            endFuncDate = startFuncDate.plusMonths(1).minusDays(1);
-        } else {
-            startFuncDate = selectedDate.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
-            endFuncDate = selectedDate.with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY));
-        }
-
-        startMillis = startFuncDate.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
-        endMillis = endFuncDate.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
-
-        List<Transaction> filteredList = new ArrayList<>();
-        for (Transaction t : allTransactions) {
-            if (t.type == 0 && t.category.equals(category)) {
-                if (t.date >= startMillis && t.date < endMillis) {
-                    filteredList.add(t);
-                }
-            }
+    // 饼图对应的时间窗口：趋势模式取已加载的整个范围
+    private PeriodWindow currentWindow() {
+        TrendChart trend = viewModel.getTrendChart().getValue();
+        if (isTrendMode() && trend != null) {
+            return PeriodWindow.of(LocalDate.ofEpochDay(trend.series.startDay), LocalDate.ofEpochDay(trend.series.endDay));
         }
+        return StatsPeriod.of(currentMode, selectedDate).window;
+    }
 
+    private void showCategoryDetailDialog(int categoryId, String category) {
         AlertDialog.Builder builder = new AlertDialog.Builder(requireContext());
         // 确保你的布局文件中有 dialog_transaction_list
         View dialogView = LayoutInflater.from(requireContext()).inflate(R.layout.dialog_transaction_list, null);
@@ -411,7 +269,20 @@ public class StatsFragment extends Fragment {
         RecyclerView rv = dialogView.findViewById(R.id.rv_detail_list);
         rv.setLayoutManager(new LinearLayoutManager(requireContext()));
         // 确保你已经创建了 TransactionListAdapter
-        rv.setAdapter(new TransactionListAdapter(filteredList));
+        TransactionListAdapter listAdapter = new TransactionListAdapter();
+        rv.setAdapter(listAdapter);
+        Observer<List<Category>> names = listAdapter::setCategories;
+        viewModel.getCategories().observe(getViewLifecycleOwner(), names);
+
+        // 由数据库按 分类+时间窗口 分页查询，弹窗关闭时取消观察
+        PeriodWindow window = currentWindow();
+        LiveData<PagingData<Transaction>> detail = viewModel.getCategoryExpensePages(window, categoryId);
+        detail.observe(getViewLifecycleOwner(),
+                pages -> listAdapter.submitData(getViewLifecycleOwner().getLifecycle(), pages));
+        dialog.setOnDismissListener(d -> {
+            detail.removeObservers(getViewLifecycleOwner());
+            viewModel.getCategories().removeObserver(names);
+        });
 
         Button btnClose = dialogView.findViewById(R.id.btn_close_dialog);
         btnClose.setOnClickListener(v -> dialog.dismiss());
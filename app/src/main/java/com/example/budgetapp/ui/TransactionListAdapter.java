@@ -1,46 +1,75 @@
 package com.example.budgetapp.ui;
 
+import android.annotation.SuppressLint;
+import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.paging.PagingDataAdapter;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.budgetapp.R;
+import com.example.budgetapp.database.Category;
+import com.example.budgetapp.database.Money;
 import com.example.budgetapp.database.Transaction;
 
-import java.time.Instant;
-import java.time.ZoneId;
+import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
-public class TransactionListAdapter extends RecyclerView.Adapter<TransactionListAdapter.ViewHolder> {
-    
-    // 1. 定义数据源，初始化为空防止空指针
-    private List<Transaction> list = new ArrayList<>();
-    
-    // 2. 定义点击监听器接口
+// 分页列表：数据通过 submitData 传入，只加载可见窗口，差异在后台线程计算
+public class TransactionListAdapter extends PagingDataAdapter<Transaction, TransactionListAdapter.ViewHolder> {
+    private static final DateTimeFormatter MONTH_DAY = DateTimeFormatter.ofPattern("MM-dd");
+
+    // 1. 定义点击监听器接口
     private OnItemClickListener listener;
+    // 账单只存 category_id，显示时在这里查名称
+    private final SparseArray<String> categoryNames = new SparseArray<>();
 
     public interface OnItemClickListener {
         void onItemClick(Transaction transaction);
     }
 
-    // --- 构造函数 1：给“统计”模块使用 (只传数据，不可点击) ---
-    public TransactionListAdapter(List<Transaction> list) {
-        this.list = list;
+    // 2. 比较新旧数据：同一 id 视为同一条，字段都相同则无需重绘
+    private static final DiffUtil.ItemCallback<Transaction> DIFF_CALLBACK = new DiffUtil.ItemCallback<Transaction>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Transaction oldItem, @NonNull Transaction newItem) {
+            return oldItem.id == newItem.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Transaction oldItem, @NonNull Transaction newItem) {
+            return oldItem.date == newItem.date
+                    && oldItem.type == newItem.type
+                    && oldItem.amount == newItem.amount
+                    && oldItem.categoryId == newItem.categoryId
+                    && Objects.equals(oldItem.note, newItem.note)
+                    && Objects.equals(oldItem.payee, newItem.payee);
+        }
+    };
+
+    // --- 构造函数 1：给“统计”模块使用 (不可点击) ---
+    public TransactionListAdapter() {
+        super(DIFF_CALLBACK);
     }
 
-    // --- 构造函数 2：给“记账”模块使用 (传监听器，数据后续通过 setTransactions 传入) ---
+    // --- 构造函数 2：给“记账”模块使用 (传监听器) ---
     public TransactionListAdapter(OnItemClickListener listener) {
+        super(DIFF_CALLBACK);
         this.listener = listener;
     }
 
-    // --- 新增方法：动态更新数据 (解决 setTransactions 报错) ---
-    public void setTransactions(List<Transaction> list) {
-        this.list = list;
-        notifyDataSetChanged(); // 刷新列表显示
+    // 分类表变化 (新增、改名) 时由界面传入，已显示的条目跟着刷新
+    @SuppressLint("NotifyDataSetChanged")
+    public void setCategories(List<Category> categories) {
+        categoryNames.clear();
+        for (Category c : categories) {
+            categoryNames.put(c.id, c.name);
+        }
+        notifyDataSetChanged();
     }
 
     @NonNull
@@ -53,27 +82,35 @@ public class TransactionListAdapter extends RecyclerView.Adapter<TransactionList
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Transaction t = list.get(position);
-        
+        Transaction t = getItem(position);
+        if (t == null) {
+            // 占位项：该页尚未加载
+            holder.tvDate.setText("");
+            holder.tvAmount.setText("");
+            holder.itemView.setOnClickListener(null);
+            return;
+        }
+
         // 设置金额
-        holder.tvAmount.setText(String.format("%.0f", t.amount));
+        holder.tvAmount.setText(Money.format(t.amount));
         
         // 设置日期 (格式：MM-dd)
-        String dateStr = Instant.ofEpochMilli(t.date)
-                .atZone(ZoneId.systemDefault())
-                .toLocalDate()
-                .format(DateTimeFormatter.ofPattern("MM-dd"));
+        String dateStr = LocalDate.ofEpochDay(t.dayKey).format(MONTH_DAY);
         
-        // 如果有备注或分类，也可以在这里显示，目前显示日期
-        holder.tvDate.setText(dateStr + " " + t.category);
+        // 日期 + 分类，有商家、备注时跟在后面
+        StringBuilder label = new StringBuilder(dateStr).append(' ')
+                .append(categoryNames.get(t.categoryId, Category.OTHER));
+        if (t.payee != null) label.append(' ').append(t.payee);
+        if (t.note != null) label.append(' ').append(t.note);
+        holder.tvDate.setText(label);
 
         // 设置颜色：收入红，支出绿
         if (t.type == 1) {
             holder.tvAmount.setTextColor(holder.itemView.getContext().getColor(R.color.income_red));
-            holder.tvAmount.setText("+" + String.format("%.0f", t.amount));
+            holder.tvAmount.setText("+" + Money.format(t.amount));
         } else {
             holder.tvAmount.setTextColor(holder.itemView.getContext().getColor(R.color.expense_green));
-            holder.tvAmount.setText("-" + String.format("%.0f", t.amount));
+            holder.tvAmount.setText("-" + Money.format(t.amount));
         }
 
         // --- 核心：绑定点击事件 ---
@@ -84,11 +121,6 @@ public class TransactionListAdapter extends RecyclerView.Adapter<TransactionList
         });
     }
 
-    @Override
-    public int getItemCount() {
-        return list == null ? 0 : list.size();
-    }
-
     static class ViewHolder extends RecyclerView.ViewHolder {
         TextView tvDate, tvAmount;
         ViewHolder(View v) {
@@ -0,0 +1,54 @@
+package com.example.budgetapp.viewmodel;
+
+import com.example.budgetapp.analytics.BucketBounds;
+import com.example.budgetapp.analytics.PeriodAccumulator;
+import com.example.budgetapp.database.DailyTotal;
+import com.example.budgetapp.database.DailyTotalDao;
+import com.example.budgetapp.database.PeriodTotal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+// 日历页一个月的数据：days 与 dayNet 按位置一一对应，summary 为本月合计
+public final class CalendarMonth {
+    public final YearMonth month;
+    public final List<LocalDate> days;
+    public final long[] dayNet;     // 每天的净收支 (收入 - 支出)，单位：分
+    public final PeriodTotal summary;
+
+    private CalendarMonth(YearMonth month, List<LocalDate> days, long[] dayNet, PeriodTotal summary) {
+        this.month = month;
+        this.days = days;
+        this.dayNet = dayNet;
+        this.summary = summary;
+    }
+
+    // 同步读取并组装，在计算线程上调用；本月尚未入账的重复账单一并计入
+    static CalendarMonth load(DailyTotalDao dao, YearMonth month, RecurringProjection recurring) {
+        PeriodWindow w = PeriodWindow.ofMonth(month);
+        return of(month, dao.getDailyTotals(w.startDay, w.endDay), recurring);
+    }
+
+    // 按天汇总行按 epochDay 归到格子里，本月合计顺带累加，无需遍历账单
+    static CalendarMonth of(YearMonth month, List<DailyTotal> totals, RecurringProjection recurring) {
+        LocalDate[] edges = BucketBounds.daysOfMonth(month);
+        PeriodAccumulator acc = new PeriodAccumulator(BucketBounds.ofEpochDays(edges));
+        for (DailyTotal d : totals) {
+            acc.addTotals(d.dayKey, d.income, d.expense);
+        }
+        recurring.addTo(acc);
+
+        int length = acc.bounds.size();
+        List<LocalDate> days = new ArrayList<>(length);
+        long[] dayNet = new long[length];
+        for (int i = 0; i < length; i++) {
+            days.add(edges[i]);
+            dayNet[i] = acc.net(i);
+        }
+        PeriodTotal summary = new PeriodTotal();
+        summary.income = acc.totalIncome();
+        summary.expense = acc.totalExpense();
+        return new CalendarMonth(month, days, dayNet, summary);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.budgetapp.viewmodel;
+
+import com.example.budgetapp.analytics.BucketBounds;
+import com.example.budgetapp.analytics.PeriodAccumulator;
+import com.example.budgetapp.database.CategoryTotal;
+import com.example.budgetapp.database.DailyTotal;
+import com.example.budgetapp.database.DailyTotalDao;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+// 统计页一个周期的图表数据，在计算线程上组装好后交给界面渲染
+public final class ChartSeries {
+    public final StatsPeriod period;
+    public final int maxX;                          // 横轴分桶数：12 个月 / 当月天数 / 7 天
+    public final long[] income;                     // 下标即分桶 (1..maxX)，单位：分
+    public final long[] expense;
+    public final List<CategoryTotal> categories;    // 饼图：各支出分类合计
+
+    private ChartSeries(StatsPeriod period, int maxX, long[] income, long[] expense,
+                        List<CategoryTotal> categories) {
+        this.period = period;
+        this.maxX = maxX;
+        this.income = income;
+        this.expense = expense;
+        this.categories = categories;
+    }
+
+    // 同步读取并组装，在计算线程上调用；周期内尚未入账的重复账单一并计入
+    static ChartSeries load(DailyTotalDao dao, StatsPeriod p, RecurringProjection recurring) {
+        PeriodAccumulator acc = new PeriodAccumulator(bucketBounds(p));
+        for (DailyTotal d : dao.getDailyTotals(acc.bounds.start(), acc.bounds.end())) {
+            acc.addTotals(d.dayKey, d.income, d.expense);
+        }
+        recurring.addTo(acc);
+        PeriodWindow w = p.window;
+        return of(p, acc, recurring.withExpenses(dao.getExpenseByCategory(w.startDay, w.endDay), w.startDay, w.endDay));
+    }
+
+    // 年视图按月、月视图按日、周视图按天分桶，边界为 epochDay
+    static BucketBounds bucketBounds(StatsPeriod p) {
+        LocalDate start = LocalDate.ofEpochDay(p.window.startDay);
+        if (p.mode == StatsPeriod.MODE_YEAR) return BucketBounds.ofEpochDays(BucketBounds.monthsOfYear(start.getYear()));
+        if (p.mode == StatsPeriod.MODE_MONTH) return BucketBounds.ofEpochDays(BucketBounds.daysOfMonth(YearMonth.from(start)));
+        return BucketBounds.ofEpochDays(BucketBounds.daysOfWeek(start));
+    }
+
+    static ChartSeries of(StatsPeriod period, PeriodAccumulator acc, List<CategoryTotal> categories) {
+        int maxX = acc.bounds.size();
+        long[] income = new long[maxX + 1];
+        long[] expense = new long[maxX + 1];
+        System.arraycopy(acc.income, 0, income, 1, maxX);
+        System.arraycopy(acc.expense, 0, expense, 1, maxX);
+        return new ChartSeries(period, maxX, income, expense, categories);
+    }
+}
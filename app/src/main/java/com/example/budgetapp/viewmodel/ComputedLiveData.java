@@ -0,0 +1,72 @@
+package com.example.budgetapp.viewmodel;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.lifecycle.LiveData;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 在后台线程上按 key 计算结果的 LiveData。
+ * 只有最新一次请求会被计算和发布：快速翻页时排队中的旧请求直接跳过，
+ * 计算途中过期的结果也会被丢弃；没有观察者时只标记为脏，等 onActive 再算。
+ * 是否有观察者只在主线程上判断 (与 onActive 同一线程)，后台线程的 invalidate 会转到主线程。
+ */
+final class ComputedLiveData<K, R> extends LiveData<R> {
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+    private final Executor executor;
+    private final Function<K, R> compute;
+    private final AtomicLong generation = new AtomicLong();
+    private volatile K key;
+    private volatile boolean dirty;
+
+    ComputedLiveData(Executor executor, Function<K, R> compute) {
+        this.executor = executor;
+        this.compute = compute;
+    }
+
+    K getKey() {
+        return key;
+    }
+
+    void setKey(K key) {
+        if (Objects.equals(this.key, key)) return;
+        this.key = key;
+        invalidate();
+    }
+
+    // 数据变动后调用。后台线程上调用时转到主线程再判断，避免和 onActive 竞争而漏算
+    void invalidate() {
+        dirty = true;
+        if (Looper.myLooper() == Looper.getMainLooper()) scheduleIfActive();
+        else MAIN.post(this::scheduleIfActive);
+    }
+
+    private void scheduleIfActive() {
+        if (dirty && hasActiveObservers()) schedule();
+    }
+
+    @Override
+    protected void onActive() {
+        if (dirty) schedule();
+    }
+
+    private void schedule() {
+        K k = key;
+        if (k == null) return;
+        dirty = false;
+        long gen = generation.incrementAndGet();
+        executor.execute(() -> {
+            if (gen != generation.get()) return;    // 排队期间已有更新的请求，合并掉
+            R result = compute.apply(k);
+            // executor 可能是多线程的：检查与发布放在同一把锁里，旧结果不会在新结果之后发布
+            synchronized (this) {
+                if (gen == generation.get()) postValue(result);    // 计算期间过期则丢弃
+            }
+        });
+    }
+}
@@ -1,43 +1,491 @@
 package com.example.budgetapp.viewmodel;
 
 import android.app.Application;
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.provider.DocumentsContract;
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
+import androidx.room.InvalidationTracker;
+import com.example.budgetapp.BackupManager;
+import com.example.budgetapp.RecurringMaterializer;
+import com.example.budgetapp.TransactionExporter;
+import com.example.budgetapp.TransactionImporter;
+import com.example.budgetapp.concurrent.AppExecutors;
 import com.example.budgetapp.database.AppDatabase;
+import com.example.budgetapp.database.Category;
+import com.example.budgetapp.database.ChangeJournal;
+import com.example.budgetapp.database.DailyTotalDao;
+import com.example.budgetapp.database.PeriodTotal;
+import com.example.budgetapp.database.RecurringRule;
+import com.example.budgetapp.database.RecurringRuleDao;
 import com.example.budgetapp.database.Transaction;
 import com.example.budgetapp.database.TransactionDao;
+import com.example.budgetapp.database.TransactionSearch;
+import com.example.budgetapp.database.WriteQueue;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.concurrent.CompletableFuture;
 
 public class FinanceViewModel extends AndroidViewModel {
+    private static final PagingConfig PAGE_CONFIG = new PagingConfig(50);
+    private static final int SUMMARY_CACHE_SIZE = 64;
+    private static final int JOURNAL_READ_LIMIT = 1000;
+    // 界面每读过这么多条变更日志清理一次
+    private static final int JOURNAL_PRUNE_STEP = 500;
+
+    private final AppDatabase db;
     private final TransactionDao dao;
-    private final LiveData<List<Transaction>> allTransactions;
+    private final DailyTotalDao dailyDao;
+    private final RecurringRuleDao ruleDao;
+    private final LiveData<List<Category>> categories;
+
+    // 派生数据 (日历、图表、预取) 在低优先级的 analytics 线程池上计算，写入走唯一的写线程，
+    // 统计再忙也不会推迟用户的保存 (见 AppExecutors)
+    private final AppExecutors executors = AppExecutors.get();
+    private volatile boolean cleared;
+
+    // 记账页：当前月份的日历格子 + 本月合计；统计页：当前周期的图表数据
+    private final ComputedLiveData<YearMonth, CalendarMonth> calendarMonth;
+    private final LiveData<PeriodTotal> monthSummary;
+    private final ComputedLiveData<StatsPeriod, ChartSeries> chartSeries;
+    // 统计页的长周期趋势 (近 N 年 / 全部)
+    private final ComputedLiveData<TrendRange, TrendChart> trendChart;
+
+    // 已算过的周期：来回翻页时直接命中。写入只丢弃覆盖被改日期的条目 (见 onJournalChanged)；
+    // 不经过变更日志的批量写入 (恢复、时区重建) 须经由本类整体失效 (见 invalidateAll)
+    private final SummaryCache summaryCache = new SummaryCache(SUMMARY_CACHE_SIZE);
+
+    // 搜索关键词 (界面已做防抖)，变化时切换到新的分页查询
+    private final MutableLiveData<String> searchQuery = new MutableLiveData<>();
+    private final LiveData<PagingData<Transaction>> searchResults;
+
+    // 单条增删改的写入队列 (单写线程，按窗口合并)
+    private final WriteQueue writes;
+
+    // 按当前 key 覆盖的日期登记的派生数据：改动某天只重算覆盖那天的周期
+    private final PeriodObservers periods = new PeriodObservers();
+    private final InvalidationTracker.Observer journalObserver;
+    // 已处理到的变更日志序号，及上次清理时的序号
+    private long journalSeq;
+    private long journalPrunedSeq;
+
+    // 重复规则尚未入账部分的快照，按需加载；规则或分类变化时置空 (版本号防止旧快照覆盖)
+    private volatile RecurringProjection recurring;
+    private int recurringVersion;
+    // 上次补写到期重复账单的日期：跨天后 (翻月、回到前台时) 再补写一次
+    private volatile LocalDate materializedOn = LocalDate.now();
 
     public FinanceViewModel(@NonNull Application application) {
         super(application);
-        AppDatabase db = AppDatabase.getDatabase(application);
+        db = AppDatabase.getDatabase(application);
         dao = db.transactionDao();
-        allTransactions = dao.getAllTransactions();
+        dailyDao = db.dailyTotalDao();
+        ruleDao = db.recurringRuleDao();
+        categories = db.categoryDao().getAll();
+        writes = new WriteQueue(db::runInTransaction, executors.writer, WriteQueue.DEFAULT_WINDOW_MS, this::touched);
+        calendarMonth = new ComputedLiveData<>(executors.analytics, month -> {
+            CalendarMonth result = loadCalendar(month);
+            prefetchCalendar(month);
+            return result;
+        });
+        monthSummary = Transformations.map(calendarMonth, c -> c.summary);
+        searchResults = Transformations.switchMap(searchQuery, query -> {
+            String match = TransactionSearch.matchQuery(query);
+            if (match == null) return new MutableLiveData<>(PagingData.empty());
+            return PagingLiveData.getLiveData(new Pager<>(PAGE_CONFIG, () -> dao.search(match)));
+        });
+        chartSeries = new ComputedLiveData<>(executors.analytics, period -> {
+            ChartSeries result = loadChart(period);
+            prefetchChart(period);
+            return result;
+        });
+        trendChart = new ComputedLiveData<>(executors.analytics, this::loadTrend);
+        periods.add(calendarMonth, (month, day) -> PeriodWindow.ofMonth(month).containsDay(day));
+        periods.add(chartSeries, (period, day) -> period.window.containsDay(day));
+        periods.add(trendChart, TrendRange::coversDay);
+
+        // 账单的每次增删改都由触发器记入 change_log (改日期时新旧两天都有)：
+        // 提交后按新记录的日期只刷新覆盖这些天的周期；分类改名后图表里的名称都要换，
+        // 重复规则变化 (新增、删除、入账进度) 影响的周期无法从日志得知，都整体失效
+        journalObserver = new InvalidationTracker.Observer("change_log", "categories", "recurring_rules") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                if (tables.contains("categories") || tables.contains("recurring_rules")) {
+                    dropRecurring();
+                    invalidateAll();
+                }
+                if (tables.contains("change_log")) onJournalChanged();
+            }
+        };
+        // 登记为日志读者：备份清理日志时不会删掉这里还没读到的记录
+        executors.analytics.execute(() -> {
+            synchronized (journalObserver) {
+                journalSeq = db.registerJournalReader(this);
+                journalPrunedSeq = journalSeq;
+            }
+            db.getInvalidationTracker().addObserver(journalObserver);
+        });
+        // 汇总表按本地时区分天，时区变化后在后台重建；随后把到期的重复账单写入
+        LocalDate today = materializedOn;
+        executors.writer.execute(() -> {
+            db.ensureDailyTotalsZone(application);
+            invalidateAll();
+            new RecurringMaterializer(db).materializeDue(today);
+            new BackupManager(application).trimChangeLog();
+        });
+    }
+
+    @Override
+    protected void onCleared() {
+        // 线程池是全局的，不关闭；已排队的写入照常提交
+        cleared = true;
+        executors.analytics.execute(() -> {
+            db.getInvalidationTracker().removeObserver(journalObserver);
+            db.unregisterJournalReader(this);
+        });
+    }
+
+    // 分类字典 (按 id 排序)，记账页的分类选项和列表里的分类名都来自这里
+    public LiveData<List<Category>> getCategories() {
+        return categories;
+    }
+
+    // --- 按周期读取 (结果在计算线程上生成) ---
+
+    public void setMonth(YearMonth month) {
+        materializeDueIfDayChanged();
+        calendarMonth.setKey(month);
+    }
+
+    public LiveData<CalendarMonth> getCalendarMonth() {
+        return calendarMonth;
+    }
+
+    public LiveData<PeriodTotal> getMonthSummary() {
+        return monthSummary;
+    }
+
+    public void setStatsPeriod(StatsPeriod period) {
+        chartSeries.setKey(period);
+    }
+
+    public LiveData<ChartSeries> getChartSeries() {
+        return chartSeries;
+    }
+
+    public void setTrendRange(TrendRange range) {
+        trendChart.setKey(range);
+    }
+
+    public LiveData<TrendChart> getTrendChart() {
+        return trendChart;
+    }
+
+    private CalendarMonth loadCalendar(YearMonth month) {
+        PeriodWindow w = PeriodWindow.ofMonth(month);
+        return cached(month, w.startDay, w.endDay, () -> CalendarMonth.load(dailyDao, month, recurring()));
+    }
+
+    private ChartSeries loadChart(StatsPeriod period) {
+        return cached(period, period.window.startDay, period.window.endDay, () -> ChartSeries.load(dailyDao, period, recurring()));
+    }
+
+    private TrendChart loadTrend(TrendRange range) {
+        return cached(range, range.coveredStartDay(), range.coveredEndDay(), () -> TrendChart.load(dailyDao, range, recurring()));
+    }
+
+    // 计算线程上调用
+    private RecurringProjection recurring() {
+        RecurringProjection p = recurring;
+        if (p != null) return p;
+        int version;
+        synchronized (this) {
+            version = recurringVersion;
+        }
+        p = RecurringProjection.load(ruleDao, db.categoryDao());
+        synchronized (this) {
+            if (version == recurringVersion) recurring = p;
+        }
+        return p;
+    }
+
+    private void dropRecurring() {
+        synchronized (this) {
+            recurringVersion++;
+            recurring = null;
+        }
+    }
+
+    // 当前周期算完后预先算好上一个、下一个周期；用户已经翻走则不再预取。
+    // 预取期间发生写入时，SummaryCache 会拒收旧结果
+    private void prefetchCalendar(YearMonth month) {
+        prefetch(() -> {
+            for (YearMonth m : new YearMonth[]{month.minusMonths(1), month.plusMonths(1)}) {
+                if (!month.equals(calendarMonth.getKey())) return;
+                loadCalendar(m);
+            }
+        });
+    }
+
+    private void prefetchChart(StatsPeriod period) {
+        prefetch(() -> {
+            for (StatsPeriod p : new StatsPeriod[]{period.shift(-1), period.shift(1)}) {
+                if (!period.equals(chartSeries.getKey())) return;
+                loadChart(p);
+            }
+        });
+    }
+
+    private void prefetch(Runnable task) {
+        executors.analytics.execute(() -> {
+            if (!cleared) task.run();
+        });
+    }
+
+    private <T> T cached(Object key, long startDay, long endDay, Supplier<T> compute) {
+        T hit = summaryCache.get(key);
+        if (hit != null) return hit;
+        long version = summaryCache.version();
+        T value = compute.get();
+        summaryCache.put(key, startDay, endDay, value, version);
+        return value;
+    }
+
+    // 每批写入提交后调用一次 (写线程)：先丢弃覆盖这些天的缓存，WriteQueue 的 future 结束时读到的一定是新数据。
+    // 界面刷新交给随后的 change_log 通知，这里不再触发重算，避免同一次写入算两遍
+    private void touched(long... days) {
+        for (long day : days) {
+            summaryCache.invalidateDay(day);
+        }
+    }
+
+    // change_log 有新记录 (InvalidationTracker 线程)：读出涉及的日期，先让缓存失效再通知覆盖这些天的周期。
+    // 编辑 2019 年的一笔账只会重算 2019 年对应的月、周期，当前看的月份不动。
+    // 一次超过 JOURNAL_READ_LIMIT 条 (批量导入) 时不逐条读取，整体失效。
+    // 读过的记录每攒够 JOURNAL_PRUNE_STEP 条在写线程清理一次 (增量备份还需要的除外)
+    private void onJournalChanged() {
+        ChangeJournal.Changes changes;
+        boolean prune = false;
+        synchronized (journalObserver) {
+            changes = ChangeJournal.changedDaysSince(db.getOpenHelper().getReadableDatabase(),
+                    journalSeq, JOURNAL_READ_LIMIT);
+            journalSeq = changes.lastSeq;
+            db.advanceJournalReader(this, journalSeq);
+            if (journalSeq - journalPrunedSeq >= JOURNAL_PRUNE_STEP) {
+                journalPrunedSeq = journalSeq;
+                prune = true;
+            }
+        }
+        if (prune) executors.writer.execute(() -> new BackupManager(getApplication()).trimChangeLog());
+        if (changes.overflow) {
+            invalidateAll();
+            return;
+        }
+        for (long day : changes.days) {
+            summaryCache.invalidateDay(day);
+        }
+        periods.daysChanged(changes.days);
+    }
+
+    // 批量写入 (导入、恢复、时区重建) 后整体失效
+    private void invalidateAll() {
+        summaryCache.clear();
+        periods.invalidateAll();
+    }
+
+    // --- 明细列表 (分页，只加载可见的一页) ---
+
+    // 某天的账单明细 (日详情弹窗)
+    public LiveData<PagingData<Transaction>> getTransactionPages(PeriodWindow window) {
+        return PagingLiveData.getLiveData(new Pager<>(PAGE_CONFIG,
+                () -> dao.pageTransactionsBetween(window.start, window.end)));
+    }
+
+    // 某周期内某个支出分类的明细
+    public LiveData<PagingData<Transaction>> getCategoryExpensePages(PeriodWindow window, int categoryId) {
+        return PagingLiveData.getLiveData(new Pager<>(PAGE_CONFIG,
+                () -> dao.pageTransactionsBetweenByCategory(window.start, window.end, 0, categoryId)));
+    }
+
+    // 全文搜索 分类名 / 备注 / 商家，按日期倒序分页；空关键词时为空列表
+    public void setSearchQuery(String query) {
+        if (!Objects.equals(query, searchQuery.getValue())) searchQuery.setValue(query);
     }
 
-    public LiveData<List<Transaction>> getAllTransactions() {
-        return allTransactions;
+    public LiveData<PagingData<Transaction>> getSearchResults() {
+        return searchResults;
     }
 
-    // 原有的添加方法
-    public void addTransaction(Transaction transaction) {
-        AppDatabase.databaseWriteExecutor.execute(() -> dao.insert(transaction));
+    // 批量导入：在写线程上流式读取文件，每批一个事务；进度通过返回的 LiveData 回报
+    public LiveData<TransactionImporter.Result> importTransactions(Uri uri, TransactionImporter.Format format) {
+        MutableLiveData<TransactionImporter.Result> progress = new MutableLiveData<>();
+        executors.writer.execute(() -> {
+            TransactionImporter importer = new TransactionImporter(db);
+            try (InputStream in = getApplication().getContentResolver().openInputStream(uri)) {
+                if (in == null) throw new IOException("无法打开文件: " + uri);
+                progress.postValue(importer.importFrom(in, format,
+                        (imported, skipped) -> progress.postValue(
+                                new TransactionImporter.Result(imported, skipped, false, null))));
+            } catch (IOException e) {
+                progress.postValue(importer.failed(e.getMessage()));
+            }
+            invalidateAll();
+        });
+        return progress;
     }
 
-    // --- 下面是你缺少的两个方法 ---
+    // 导出：按筛选条件流式写出到 SAF 选择的文件，进度通过返回的 LiveData 回报。
+    // 只读不写，放在读线程池上，不占用写线程；取消或失败时删除写了一半的文件
+    public LiveData<TransactionExporter.Result> exportTransactions(Uri uri, TransactionExporter.Format format,
+                                                                   TransactionExporter.Filter filter,
+                                                                   CancellationSignal cancel) {
+        MutableLiveData<TransactionExporter.Result> progress = new MutableLiveData<>();
+        executors.reads.execute(() -> {
+            ContentResolver resolver = getApplication().getContentResolver();
+            TransactionExporter.Result result;
+            try (OutputStream out = resolver.openOutputStream(uri, "wt")) {
+                if (out == null) throw new IOException("无法打开文件: " + uri);
+                result = new TransactionExporter(db).exportTo(out, format, filter, cancel,
+                        (exported, total) -> progress.postValue(
+                                new TransactionExporter.Result(exported, total, false, false, null)));
+            } catch (IOException e) {
+                result = new TransactionExporter.Result(0, 0, true, false, e.getMessage());
+            }
+            if (result.cancelled || result.error != null) {
+                try {
+                    DocumentsContract.deleteDocument(resolver, uri);
+                } catch (IOException | RuntimeException e) {
+                    // 不支持删除的提供方：保留不完整的文件，由结果告知调用方
+                }
+            }
+            progress.postValue(result);
+        });
+        return progress;
+    }
+
+    // 备份 / 恢复：流式读写文件，结果为行数，失败时为 -1。
+    // 完整备份只读，放在读线程池上，从只读快照读取，不占用写线程；
+    // 文件关闭成功后才在写线程上提交检查点，写失败的备份不会让后续增量备份缺一段
+    public LiveData<Long> backupTo(Uri uri) {
+        MutableLiveData<Long> result = new MutableLiveData<>();
+        executors.reads.execute(() -> {
+            BackupManager backup = new BackupManager(getApplication());
+            BackupManager.Checkpoint done;
+            try (OutputStream out = getApplication().getContentResolver().openOutputStream(uri, "wt")) {
+                if (out == null) throw new IOException("无法打开文件: " + uri);
+                done = backup.backup(out);
+            } catch (IOException | RuntimeException e) {
+                result.postValue(-1L);
+                return;
+            }
+            executors.writer.execute(() -> {
+                backup.commit(done);
+                result.postValue(done.count);
+            });
+        });
+        return result;
+    }
+
+    // 增量备份：只写出上次备份之后的改动；还没有完整备份时先做完整备份。
+    // 读检查点、写文件、提交检查点都在写线程上依次完成，两次增量备份不会交错
+    public LiveData<Long> backupChangesTo(Uri uri) {
+        MutableLiveData<Long> result = new MutableLiveData<>();
+        executors.writer.execute(() -> {
+            BackupManager backup = new BackupManager(getApplication());
+            BackupManager.Checkpoint done;
+            try (OutputStream out = getApplication().getContentResolver().openOutputStream(uri, "wt")) {
+                if (out == null) throw new IOException("无法打开文件: " + uri);
+                done = backup.hasCheckpoint() ? backup.backupChanges(out) : backup.backup(out);
+            } catch (IOException | RuntimeException e) {
+                result.postValue(-1L);
+                return;
+            }
+            backup.commit(done);
+            result.postValue(done.count);
+        });
+        return result;
+    }
+
+    public LiveData<Long> restoreFrom(Uri uri) {
+        MutableLiveData<Long> result = new MutableLiveData<>();
+        executors.writer.execute(() -> {
+            try (InputStream in = getApplication().getContentResolver().openInputStream(uri)) {
+                if (in == null) throw new IOException("无法打开文件: " + uri);
+                result.postValue(new BackupManager(getApplication()).restore(in));
+            } catch (IOException | RuntimeException e) {
+                result.postValue(-1L);
+            }
+            invalidateAll();
+        });
+        return result;
+    }
+
+    // --- 重复记账 ---
+
+    public LiveData<List<RecurringRule>> getRecurringRules() {
+        return ruleDao.getAll();
+    }
+
+    // 保存规则后立即补写已到期的发生日 (开始日期在今天或之前时)，之后的发生日按需展开
+    public CompletableFuture<Void> addRecurringRule(RecurringRule rule) {
+        return CompletableFuture.runAsync(() -> {
+            ruleDao.insert(rule);
+            new RecurringMaterializer(db).materializeDue(LocalDate.now());
+        }, executors.writer);
+    }
+
+    // 应用一直开着跨过了某个发生日时，把它写成账单 (在此之前由投影显示)。主线程调用
+    public void materializeDueIfDayChanged() {
+        LocalDate today = LocalDate.now();
+        if (today.equals(materializedOn)) return;
+        materializedOn = today;
+        executors.writer.execute(() -> new RecurringMaterializer(db).materializeDue(today));
+    }
+
+    // 只删规则 (之后不再入账)，已写成的账单保留
+    public CompletableFuture<Void> deleteRecurringRule(RecurringRule rule) {
+        return CompletableFuture.runAsync(() -> ruleDao.delete(rule), executors.writer);
+    }
+
+    // --- 单条写入：经 WriteQueue 合并，同一窗口内的写入共用一个事务、一次失效；
+    // 返回的 future 在写入提交 (缓存已失效) 后结束 ---
+
+    public CompletableFuture<Void> addTransaction(Transaction transaction) {
+        return writes.submit(() -> {
+            dao.insert(transaction);
+            return new long[]{transaction.dayKey};
+        });
+    }
 
-    // 新增：删除方法
-    public void deleteTransaction(Transaction transaction) {
-        AppDatabase.databaseWriteExecutor.execute(() -> dao.delete(transaction));
+    public CompletableFuture<Void> deleteTransaction(Transaction transaction) {
+        return writes.submit(() -> {
+            dao.delete(transaction);
+            return new long[]{transaction.dayKey};
+        });
     }
 
-    // 新增：更新方法
-    public void updateTransaction(Transaction transaction) {
-        AppDatabase.databaseWriteExecutor.execute(() -> dao.update(transaction));
+    public CompletableFuture<Void> updateTransaction(Transaction transaction) {
+        return writes.submit(() -> {
+            // 改日期时原来那天也受影响
+            Long oldDay = dao.getDayKey(transaction.id);
+            dao.update(transaction);
+            return oldDay != null ? new long[]{oldDay, transaction.dayKey} : new long[]{transaction.dayKey};
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package com.example.budgetapp.viewmodel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按日期分发数据变动：每个按周期计算的 ComputedLiveData 登记 "当前 key 是否覆盖某天"，
+ * 某些天被改动时只让覆盖这些天的 LiveData 重新计算，其余界面不动。
+ * 登记在构造时完成，之后只读，可在任意线程调用。
+ */
+final class PeriodObservers {
+    interface DayRange<K> {
+        boolean covers(K key, long day);
+    }
+
+    private static final class Registration<K> {
+        final ComputedLiveData<K, ?> data;
+        final DayRange<K> range;
+
+        Registration(ComputedLiveData<K, ?> data, DayRange<K> range) {
+            this.data = data;
+            this.range = range;
+        }
+
+        // 当前 key 覆盖任意一天即失效；还没有 key 的不用管
+        void daysChanged(long[] days) {
+            K key = data.getKey();
+            if (key == null) return;
+            for (long day : days) {
+                if (range.covers(key, day)) {
+                    data.invalidate();
+                    return;
+                }
+            }
+        }
+    }
+
+    private final List<Registration<?>> registrations = new ArrayList<>();
+
+    <K> void add(ComputedLiveData<K, ?> data, DayRange<K> range) {
+        registrations.add(new Registration<>(data, range));
+    }
+
+    void daysChanged(long[] days) {
+        if (days.length == 0) return;
+        for (Registration<?> r : registrations) {
+            r.daysChanged(days);
+        }
+    }
+
+    void invalidateAll() {
+        for (Registration<?> r : registrations) {
+            r.data.invalidate();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.budgetapp.viewmodel;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Objects;
+
+// 查询窗口：[start, end) 的时间戳区间，界面只加载当前可见周期的数据
+public final class PeriodWindow {
+    public final long start;
+    public final long end;
+    // 同一区间的本地日期 epochDay，用于查询按天汇总表
+    public final long startDay;
+    public final long endDay;
+
+    private PeriodWindow(long start, long end, long startDay, long endDay) {
+        this.start = start;
+        this.end = end;
+        this.startDay = startDay;
+        this.endDay = endDay;
+    }
+
+    // [from, toExclusive) 按系统时区换算为时间戳
+    public static PeriodWindow of(LocalDate from, LocalDate toExclusive) {
+        ZoneId zone = ZoneId.systemDefault();
+        return new PeriodWindow(
+                from.atStartOfDay(zone).toInstant().toEpochMilli(),
+                toExclusive.atStartOfDay(zone).toInstant().toEpochMilli(),
+                from.toEpochDay(),
+                toExclusive.toEpochDay());
+    }
+
+    public static PeriodWindow ofDay(LocalDate date) {
+        return of(date, date.plusDays(1));
+    }
+
+    // 周一到周日
+    public static PeriodWindow ofWeek(LocalDate date) {
+        LocalDate monday = date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        return of(monday, monday.plusWeeks(1));
+    }
+
+    public static PeriodWindow ofMonth(YearMonth month) {
+        return of(month.atDay(1), month.plusMonths(1).atDay(1));
+    }
+
+    public static PeriodWindow ofYear(int year) {
+        return of(LocalDate.of(year, 1, 1), LocalDate.of(year + 1, 1, 1));
+    }
+
+    public boolean containsDay(long day) {
+        return startDay <= day && day < endDay;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PeriodWindow)) return false;
+        PeriodWindow that = (PeriodWindow) o;
+        return start == that.start && end == that.end;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(start, end);
+    }
+}
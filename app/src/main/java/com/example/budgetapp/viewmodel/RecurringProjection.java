@@ -0,0 +1,86 @@
+package com.example.budgetapp.viewmodel;
+
+import com.example.budgetapp.analytics.PeriodAccumulator;
+import com.example.budgetapp.analytics.TrendSeries;
+import com.example.budgetapp.database.Category;
+import com.example.budgetapp.database.CategoryDao;
+import com.example.budgetapp.database.CategoryTotal;
+import com.example.budgetapp.database.RecurringRule;
+import com.example.budgetapp.database.RecurringRuleDao;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 重复规则尚未写成账单的发生日 (materialized_through 之后)，查看某个周期时才在内存里展开，
+ * 只展开该周期的日期，不写库。日历、月合计、统计图都叠加这部分，与已入账的数据合起来就是完整的收支。
+ * 规则表的快照，构建后只读；规则或分类变化时整体重建 (见 FinanceViewModel)。
+ */
+final class RecurringProjection {
+    static final RecurringProjection EMPTY = new RecurringProjection(new ArrayList<>(), new HashMap<>());
+
+    interface Occurrence {
+        void accept(long day, RecurringRule rule);
+    }
+
+    private final List<RecurringRule> rules;
+    private final Map<Integer, String> categoryNames;
+
+    private RecurringProjection(List<RecurringRule> rules, Map<Integer, String> categoryNames) {
+        this.rules = rules;
+        this.categoryNames = categoryNames;
+    }
+
+    // 同步读取，在后台线程调用
+    static RecurringProjection load(RecurringRuleDao ruleDao, CategoryDao categoryDao) {
+        List<RecurringRule> rules = ruleDao.getAllSync();
+        if (rules.isEmpty()) return EMPTY;
+        Map<Integer, String> names = new HashMap<>();
+        for (Category c : categoryDao.getAllSync()) names.put(c.id, c.name);
+        return new RecurringProjection(rules, names);
+    }
+
+    boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    // [fromDay, toDay) 内每个未入账的发生日
+    void forEach(long fromDay, long toDay, Occurrence out) {
+        for (RecurringRule rule : rules) {
+            rule.recurrence().forEach(Math.max(fromDay, rule.materializedThrough), toDay, day -> out.accept(day, rule));
+        }
+    }
+
+    void addTo(PeriodAccumulator acc) {
+        forEach(acc.bounds.start(), acc.bounds.end(), (day, rule) -> acc.add(day, rule.type, rule.amount));
+    }
+
+    void addTo(TrendSeries.Builder builder, long fromDay, long toDay) {
+        forEach(fromDay, toDay, (day, rule) -> {
+            if (rule.type == PeriodAccumulator.TYPE_INCOME) builder.add(day, rule.amount, 0);
+            else builder.add(day, 0, rule.amount);
+        });
+    }
+
+    // 把 [fromDay, toDay) 内的支出发生日并入各分类合计 (原列表里的合计对象就地累加)
+    List<CategoryTotal> withExpenses(List<CategoryTotal> totals, long fromDay, long toDay) {
+        if (isEmpty()) return totals;
+        Map<Integer, CategoryTotal> byId = new HashMap<>();
+        for (CategoryTotal t : totals) byId.put(t.categoryId, t);
+        List<CategoryTotal> merged = new ArrayList<>(totals);
+        forEach(fromDay, toDay, (day, rule) -> {
+            if (rule.type == PeriodAccumulator.TYPE_INCOME) return;
+            CategoryTotal t = byId.get(rule.categoryId);
+            if (t == null) {
+                t = new CategoryTotal();
+                t.categoryId = rule.categoryId;
+                t.category = categoryNames.get(rule.categoryId);
+                byId.put(t.categoryId, t);
+                merged.add(t);
+            }
+            t.total += rule.amount;
+        });
+        return merged;
+    }
+}
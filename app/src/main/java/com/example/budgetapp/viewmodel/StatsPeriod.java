@@ -0,0 +1,47 @@
+package com.example.budgetapp.viewmodel;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Objects;
+
+// 统计页的周期：模式 (年/月/周) + 对应的查询窗口
+public final class StatsPeriod {
+    public static final int MODE_YEAR = 0;
+    public static final int MODE_MONTH = 1;
+    public static final int MODE_WEEK = 2;
+
+    public final int mode;
+    public final PeriodWindow window;
+
+    private StatsPeriod(int mode, PeriodWindow window) {
+        this.mode = mode;
+        this.window = window;
+    }
+
+    public static StatsPeriod of(int mode, LocalDate date) {
+        if (mode == MODE_YEAR) return new StatsPeriod(mode, PeriodWindow.ofYear(date.getYear()));
+        if (mode == MODE_MONTH) return new StatsPeriod(mode, PeriodWindow.ofMonth(YearMonth.from(date)));
+        return new StatsPeriod(MODE_WEEK, PeriodWindow.ofWeek(date));
+    }
+
+    // 同一模式下前后第 offset 个周期 (与统计页的上一个/下一个按钮一致)
+    public StatsPeriod shift(int offset) {
+        LocalDate start = LocalDate.ofEpochDay(window.startDay);
+        if (mode == MODE_YEAR) return of(mode, start.plusYears(offset));
+        if (mode == MODE_MONTH) return of(mode, start.plusMonths(offset));
+        return of(mode, start.plusWeeks(offset));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof StatsPeriod)) return false;
+        StatsPeriod that = (StatsPeriod) o;
+        return mode == that.mode && window.equals(that.window);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(mode, window);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.budgetapp.viewmodel;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 周期汇总结果的 LRU 缓存 (日历月、图表序列……)，键为周期对象本身，值覆盖 [startDay, endDay)。
+ * 写入某天后只丢弃覆盖该天的条目。计算开始前取 version()，期间若发生过失效，put 不会缓存旧结果。
+ * 所有方法线程安全。
+ */
+final class SummaryCache {
+    private static final class Entry {
+        final long startDay;
+        final long endDay;
+        final Object value;
+
+        Entry(long startDay, long endDay, Object value) {
+            this.startDay = startDay;
+            this.endDay = endDay;
+            this.value = value;
+        }
+    }
+
+    private final LinkedHashMap<Object, Entry> entries;
+    private long version;
+
+    SummaryCache(int maxEntries) {
+        entries = new LinkedHashMap<Object, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    synchronized long version() {
+        return version;
+    }
+
+    @SuppressWarnings("unchecked")
+    synchronized <T> T get(Object key) {
+        Entry e = entries.get(key);
+        return e == null ? null : (T) e.value;
+    }
+
+    // version 为计算开始前读到的版本
+    synchronized void put(Object key, long startDay, long endDay, Object value, long version) {
+        if (version == this.version) entries.put(key, new Entry(startDay, endDay, value));
+    }
+
+    synchronized void invalidateDay(long day) {
+        version++;
+        entries.values().removeIf(e -> e.startDay <= day && day < e.endDay);
+    }
+
+    synchronized void clear() {
+        version++;
+        entries.clear();
+    }
+}
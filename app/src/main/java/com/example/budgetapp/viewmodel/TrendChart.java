@@ -0,0 +1,40 @@
+package com.example.budgetapp.viewmodel;
+
+import com.example.budgetapp.analytics.TrendSeries;
+import com.example.budgetapp.database.CategoryTotal;
+import com.example.budgetapp.database.DailyTotal;
+import com.example.budgetapp.database.DailyTotalDao;
+import java.util.List;
+
+// 统计页长周期趋势的数据：多级分辨率序列 + 整个范围的支出分类合计，在计算线程上组装
+public final class TrendChart {
+    public final TrendRange range;
+    public final TrendSeries series;
+    public final List<CategoryTotal> categories;
+
+    private TrendChart(TrendRange range, TrendSeries series, List<CategoryTotal> categories) {
+        this.range = range;
+        this.series = series;
+        this.categories = categories;
+    }
+
+    // 同步读取并组装，在计算线程上调用。全部历史从最早一天开始，并包含已录入的未来日期
+    static TrendChart load(DailyTotalDao dao, TrendRange range, RecurringProjection recurring) {
+        long start = range.coveredStartDay();
+        long end = range.endDay;
+        if (range.isAllTime()) {
+            Long first = dao.getFirstDay();
+            Long last = dao.getLastDay();
+            start = first != null ? Math.min(first, end - 1) : end - 1;
+            if (last != null) end = Math.max(end, last + 1);
+        }
+
+        TrendSeries.Builder builder = TrendSeries.builder(start, end);
+        for (DailyTotal d : dao.getDailyTotals(start, end)) {
+            builder.add(d.dayKey, d.income, d.expense);
+        }
+        recurring.addTo(builder, start, end);
+        return new TrendChart(range, builder.build(),
+                recurring.withExpenses(dao.getExpenseByCategory(start, end), start, end));
+    }
+}
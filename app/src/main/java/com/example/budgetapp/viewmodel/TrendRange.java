@@ -0,0 +1,57 @@
+package com.example.budgetapp.viewmodel;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+// 统计页的长周期趋势范围：最近 years 年，或全部历史 (years = ALL)；截止到 endDay (不含)
+public final class TrendRange {
+    public static final int ALL = 0;
+
+    public final int years;
+    public final long endDay;
+
+    private TrendRange(int years, long endDay) {
+        this.years = years;
+        this.endDay = endDay;
+    }
+
+    // 截止到 today (含)
+    public static TrendRange lastYears(int years, LocalDate today) {
+        if (years <= 0) throw new IllegalArgumentException("years 必须为正数");
+        return new TrendRange(years, today.plusDays(1).toEpochDay());
+    }
+
+    public static TrendRange allTime(LocalDate today) {
+        return new TrendRange(ALL, today.plusDays(1).toEpochDay());
+    }
+
+    public boolean isAllTime() {
+        return years == ALL;
+    }
+
+    // 结果覆盖的日期范围 (用于缓存失效)；全部历史的起止取决于数据本身，任何一天的写入都会影响
+    long coveredStartDay() {
+        return isAllTime() ? Long.MIN_VALUE : LocalDate.ofEpochDay(endDay).minusYears(years).toEpochDay();
+    }
+
+    long coveredEndDay() {
+        return isAllTime() ? Long.MAX_VALUE : endDay;
+    }
+
+    boolean coversDay(long day) {
+        return coveredStartDay() <= day && day < coveredEndDay();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TrendRange)) return false;
+        TrendRange that = (TrendRange) o;
+        return years == that.years && endDay == that.endDay;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(years, endDay);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.budgetapp;
+
+import androidx.lifecycle.LiveData;
+
+import com.example.budgetapp.database.Category;
+import com.example.budgetapp.database.CategoryDao;
+import com.example.budgetapp.database.CategoryDictionary;
+import com.example.budgetapp.database.Transaction;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BackupDataTest {
+    // 只在内存里的分类表
+    private static final class MemoryCategoryDao implements CategoryDao {
+        final List<Category> rows = new ArrayList<>();
+
+        @Override
+        public LiveData<List<Category>> getAll() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Category> getAllSync() {
+            return rows;
+        }
+
+        @Override
+        public Integer findId(String name) {
+            for (Category c : rows) {
+                if (c.name.equals(name)) return c.id;
+            }
+            return null;
+        }
+
+        @Override
+        public long insert(Category category) {
+            if (findId(category.name) != null) return -1;
+            category.id = rows.size() + 1;
+            rows.add(category);
+            return category.id;
+        }
+    }
+
+    @Test
+    public void longNote_roundTripsPastWriteUtfLimit() throws IOException {
+        StringBuilder note = new StringBuilder();
+        while (note.length() < 40_000) note.append("很长的备注");   // 每个汉字 3 字节，远超 65535 字节
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        BackupData.writeHeader(out, new BackupData.Header(BackupData.KIND_FULL, 1, 1, 0, 0));
+        BackupData.Writer writer = new BackupData.Writer(out);
+        writer.writeRow(7, 1_700_000_000_000L, 0, "饮食", 1250, note.toString(), null);
+        writer.writeRow(8, 1_700_000_000_000L, 1, "收入", 100, "", "公司");
+        BackupData.writeEnd(out, 2);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        BackupData.Header header = BackupData.readHeader(in);
+        BackupData.Reader reader = new BackupData.Reader(in, header,
+                new CategoryDictionary(new MemoryCategoryDao()));
+        Transaction first = reader.readRow();
+        assertEquals(7, first.id);
+        assertEquals(1250, first.amount);
+        assertEquals(note.toString(), first.note);
+        assertNull(first.payee);
+        Transaction second = reader.readRow();
+        assertEquals("", second.note);
+        assertEquals("公司", second.payee);
+        assertNull(reader.readRow());
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.budgetapp;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TransactionImporterTest {
+    @Test
+    public void readCsvRecord_keepsQuotedNewlinesCommasAndQuotes() throws IOException {
+        // 与 TransactionExporter.writeCsvField 的输出一致：含逗号、引号、换行的字段用引号包裹
+        StringReader in = new StringReader("2024-03-01 12:00:00,支出,饮食,12.50,\"第一行\n第二行, 含逗号\",\"说\"\"好\"\"\"\r\n"
+                + "2024-03-02 08:00:00,收入,收入,100,,\n");
+
+        List<String> first = TransactionImporter.readCsvRecord(in);
+        assertEquals(Arrays.asList("2024-03-01 12:00:00", "支出", "饮食", "12.50", "第一行\n第二行, 含逗号", "说\"好\""),
+                first);
+        List<String> second = TransactionImporter.readCsvRecord(in);
+        assertEquals(Arrays.asList("2024-03-02 08:00:00", "收入", "收入", "100", "", ""), second);
+        assertNull(TransactionImporter.readCsvRecord(in));
+    }
+
+    @Test
+    public void readCsvRecord_quotedCarriageReturnIsContent() throws IOException {
+        StringReader in = new StringReader("\"a\r\nb\",c");
+        assertEquals(Arrays.asList("a\r\nb", "c"), TransactionImporter.readCsvRecord(in));
+        assertNull(TransactionImporter.readCsvRecord(in));
+    }
+}
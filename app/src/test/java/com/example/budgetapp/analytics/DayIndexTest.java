@@ -0,0 +1,64 @@
+package com.example.budgetapp.analytics;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DayIndexTest {
+    private static final String[] ZONES = {"Asia/Shanghai", "America/New_York", "Europe/London", "Australia/Lord_Howe"};
+
+    @Test
+    public void epochDay_matchesJavaTime() {
+        Random random = new Random(7);
+        for (String id : ZONES) {
+            ZoneId zone = ZoneId.of(id);
+            DayIndex index = DayIndex.of(zone);
+            for (int i = 0; i < 100_000; i++) {
+                long millis = (long) ((random.nextDouble() * 2 - 0.5) * 4_000_000_000_000L);
+                assertEquals(id + " @ " + millis, expected(zone, millis), index.epochDay(millis));
+            }
+        }
+    }
+
+    @Test
+    public void epochDay_aroundTransitions() {
+        for (String id : ZONES) {
+            ZoneId zone = ZoneId.of(id);
+            DayIndex index = DayIndex.of(zone);
+            for (ZoneOffsetTransition t : zone.getRules().getTransitions()) {
+                for (long delta = -1; delta <= 1; delta++) {
+                    long millis = t.toEpochSecond() * 1000 + delta;
+                    assertEquals(id + " @ " + millis, expected(zone, millis), index.epochDay(millis));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void epochDay_before1970_floors() {
+        DayIndex utc = DayIndex.of(ZoneId.of("UTC"));
+        assertEquals(-1, utc.epochDay(-1));                     // 1969-12-31 23:59:59.999
+        assertEquals(-1, utc.epochDay(-86_400_000L));           // 1969-12-31 00:00
+        assertEquals(-2, utc.epochDay(-86_400_001L));
+        ZoneId shanghai = ZoneId.of("Asia/Shanghai");
+        long millis = -15_000_000_000L;                          // 1969-07-11
+        assertEquals(expected(shanghai, millis), DayIndex.of(shanghai).epochDay(millis));
+    }
+
+    @Test
+    public void startOfDay_roundTrips() {
+        DayIndex index = DayIndex.of(ZoneId.of("America/New_York"));
+        long day = 19_791;  // 2024-03-09，次日凌晨切换夏令时
+        assertEquals(day, index.epochDay(index.startOfDay(day)));
+        assertEquals(day, index.epochDay(index.startOfDay(day + 1) - 1));
+    }
+
+    private static long expected(ZoneId zone, long millis) {
+        return Instant.ofEpochMilli(millis).atZone(zone).toLocalDate().toEpochDay();
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.budgetapp.analytics;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+
+import static org.junit.Assert.*;
+
+public class PeriodAccumulatorTest {
+    private static final ZoneId SHANGHAI = ZoneId.of("Asia/Shanghai");
+
+    @Test
+    public void indexOf_isHalfOpen() {
+        BucketBounds bounds = BucketBounds.of(10, 20, 30);
+        assertEquals(-1, bounds.indexOf(9));
+        assertEquals(0, bounds.indexOf(10));
+        assertEquals(0, bounds.indexOf(19));
+        assertEquals(1, bounds.indexOf(20));
+        assertEquals(1, bounds.indexOf(29));
+        assertEquals(-1, bounds.indexOf(30));
+    }
+
+    @Test
+    public void monthsOfYear_millisFollowZone() {
+        BucketBounds bounds = BucketBounds.ofEpochMillis(BucketBounds.monthsOfYear(2024), SHANGHAI);
+        assertEquals(12, bounds.size());
+        long lastMinuteOfFeb = LocalDate.of(2024, 2, 29).atTime(23, 59).atZone(SHANGHAI).toInstant().toEpochMilli();
+        assertEquals(1, bounds.indexOf(lastMinuteOfFeb));
+        assertEquals(2, bounds.indexOf(lastMinuteOfFeb + 60_000));
+    }
+
+    @Test
+    public void add_accumulatesPerBucket() {
+        PeriodAccumulator acc = new PeriodAccumulator(
+                BucketBounds.ofEpochDays(BucketBounds.daysOfMonth(YearMonth.of(2024, 3))));
+        long first = LocalDate.of(2024, 3, 1).toEpochDay();
+
+        acc.add(first, PeriodAccumulator.TYPE_INCOME, 10_000);
+        acc.add(first, PeriodAccumulator.TYPE_EXPENSE, 2_550);
+        acc.add(first + 30, PeriodAccumulator.TYPE_EXPENSE, 450);
+        assertEquals(-1, acc.add(first + 31, PeriodAccumulator.TYPE_EXPENSE, 999));
+
+        assertEquals(7_450, acc.net(0));
+        assertEquals(-450, acc.net(30));
+        assertEquals(10_000, acc.totalIncome());
+        assertEquals(3_000, acc.totalExpense());
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.budgetapp.analytics;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RecurrenceTest {
+    private static List<LocalDate> expand(Recurrence r, LocalDate from, LocalDate toExclusive) {
+        List<LocalDate> days = new ArrayList<>();
+        r.forEach(from.toEpochDay(), toExclusive.toEpochDay(), d -> days.add(LocalDate.ofEpochDay(d)));
+        return days;
+    }
+
+    @Test
+    public void monthly_clampsToMonthEndWithoutDrift() {
+        Recurrence rent = new Recurrence(LocalDate.of(2024, 1, 31).toEpochDay(), Recurrence.MONTHLY, 1, Long.MAX_VALUE);
+        List<LocalDate> days = expand(rent, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 5, 1));
+        assertEquals(4, days.size());
+        assertEquals(LocalDate.of(2024, 2, 29), days.get(1));
+        assertEquals(LocalDate.of(2024, 3, 31), days.get(2));
+        assertEquals(LocalDate.of(2024, 4, 30), days.get(3));
+    }
+
+    @Test
+    public void monthly_expandsOnlyTheRequestedWindow() {
+        Recurrence salary = new Recurrence(LocalDate.of(2000, 1, 10).toEpochDay(), Recurrence.MONTHLY, 1, Long.MAX_VALUE);
+        List<LocalDate> days = expand(salary, LocalDate.of(2030, 6, 1), LocalDate.of(2030, 7, 1));
+        assertEquals(1, days.size());
+        assertEquals(LocalDate.of(2030, 6, 10), days.get(0));
+    }
+
+    @Test
+    public void weekly_respectsIntervalAndEnd() {
+        LocalDate start = LocalDate.of(2024, 3, 4);
+        Recurrence biweekly = new Recurrence(start.toEpochDay(), Recurrence.WEEKLY, 2,
+                LocalDate.of(2024, 4, 15).toEpochDay());
+        List<LocalDate> days = expand(biweekly, LocalDate.of(2024, 3, 5), LocalDate.of(2024, 12, 31));
+        assertEquals(2, days.size());
+        assertEquals(LocalDate.of(2024, 3, 18), days.get(0));
+        assertEquals(LocalDate.of(2024, 4, 1), days.get(1));
+    }
+
+    @Test
+    public void yearly_leapDayFallsBackToFeb28() {
+        Recurrence r = new Recurrence(LocalDate.of(2024, 2, 29).toEpochDay(), Recurrence.YEARLY, 1, Long.MAX_VALUE);
+        List<LocalDate> days = expand(r, LocalDate.of(2025, 1, 1), LocalDate.of(2029, 1, 1));
+        assertEquals(4, days.size());
+        assertEquals(LocalDate.of(2025, 2, 28), days.get(0));
+        assertEquals(LocalDate.of(2028, 2, 29), days.get(3));
+    }
+
+    @Test
+    public void windowBeforeStart_isEmpty() {
+        Recurrence r = new Recurrence(LocalDate.of(2024, 6, 1).toEpochDay(), Recurrence.MONTHLY, 1, Long.MAX_VALUE);
+        assertTrue(expand(r, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 6, 1)).isEmpty());
+    }
+}
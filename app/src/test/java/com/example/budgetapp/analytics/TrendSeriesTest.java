@@ -0,0 +1,82 @@
+package com.example.budgetapp.analytics;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.Assert.*;
+
+public class TrendSeriesTest {
+    private static final long START = LocalDate.of(2015, 1, 1).toEpochDay();
+    private static final long END = LocalDate.of(2025, 1, 1).toEpochDay();
+
+    private static TrendSeries tenYears() {
+        TrendSeries.Builder builder = TrendSeries.builder(START, END);
+        for (long d = START; d < END; d++) {
+            builder.add(d, 0, 1000 + (d % 7) * 10);
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void weekBounds_startOnMondays() {
+        long thursday = LocalDate.of(2024, 1, 4).toEpochDay();
+        BucketBounds weeks = TrendSeries.weekBounds(thursday, thursday + 14);
+        assertEquals(3, weeks.size());
+        assertEquals(LocalDate.of(2024, 1, 8).toEpochDay(), weeks.bound(1));
+        assertEquals(LocalDate.of(2024, 1, 15).toEpochDay(), weeks.bound(2));
+    }
+
+    @Test
+    public void coarserLevels_keepTotals() {
+        TrendSeries series = tenYears();
+        TrendSeries.Sample all = new TrendSeries.Sample();
+        long expected = 0;
+        for (long d = START; d < END; d++) expected += 1000 + (d % 7) * 10;
+        for (int level = TrendSeries.LEVEL_DAY; level <= TrendSeries.LEVEL_MONTH; level++) {
+            // maxPoints 等于该级别的桶数时正好选中该级别且不降采样，逐桶求和应等于逐天求和
+            series.sample(TrendSeries.EXPENSE, START, END, series.bucketCount(level), all);
+            assertEquals(level, all.level);
+            long sum = 0;
+            for (int i = 0; i < all.size; i++) sum += all.y[i];
+            assertEquals(expected, sum);
+        }
+    }
+
+    @Test
+    public void level_followsVisibleSpan() {
+        TrendSeries series = tenYears();
+        assertEquals(TrendSeries.LEVEL_DAY, series.level(END - 90, END, 100));
+        assertEquals(TrendSeries.LEVEL_WEEK, series.level(END - 3 * 365, END, 100));
+        assertEquals(TrendSeries.LEVEL_MONTH, series.level(START, END, 100));
+    }
+
+    @Test
+    public void sample_isBoundedAndKeepsSpike() {
+        TrendSeries.Builder builder = TrendSeries.builder(START, END);
+        long spike = START + 123;
+        builder.add(spike, 0, 9_999_999);
+        TrendSeries series = builder.build();
+
+        TrendSeries.Sample out = new TrendSeries.Sample();
+        series.sample(TrendSeries.EXPENSE, START, START + 300, 100, out);
+        assertEquals(TrendSeries.LEVEL_DAY, out.level);
+        assertEquals(100, out.size);
+        boolean found = false;
+        for (int i = 0; i < out.size; i++) {
+            if (i > 0) assertTrue(out.x[i] > out.x[i - 1]);
+            if (out.x[i] == spike) found = out.y[i] == 9_999_999;
+        }
+        assertTrue(found);
+    }
+
+    @Test
+    public void sample_padsOneBucketOnEachSide() {
+        TrendSeries series = tenYears();
+        TrendSeries.Sample out = new TrendSeries.Sample();
+        series.sample(TrendSeries.NET, START + 100, START + 110, 100, out);
+        assertEquals(12, out.size);
+        assertEquals(START + 99, out.x[0]);
+        assertEquals(START + 110, out.x[out.size - 1]);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.budgetapp.database;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TransactionSearchTest {
+    @Test
+    public void matchQuery_prefixPhrasePerTerm() {
+        assertEquals("\"午饭*\"", TransactionSearch.matchQuery("午饭"));
+        assertEquals("\"星巴克*\" \"coffee*\"", TransactionSearch.matchQuery("  星巴克\t coffee "));
+    }
+
+    @Test
+    public void matchQuery_stripsQueryOperators() {
+        assertEquals("\"a*\" \"b*\"", TransactionSearch.matchQuery("\"a\" b*"));
+        assertEquals("\"OR*\"", TransactionSearch.matchQuery("OR"));
+    }
+
+    @Test
+    public void matchQuery_blankInputIsNull() {
+        assertNull(TransactionSearch.matchQuery(null));
+        assertNull(TransactionSearch.matchQuery("   "));
+        assertNull(TransactionSearch.matchQuery("\" * \""));
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.budgetapp.database;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class WriteQueueTest {
+    // 已提交的写入；staged 为当前事务内的写入，body 抛出异常时整体丢弃 (与 Android 上的外层事务回滚一致)
+    private final List<Integer> applied = Collections.synchronizedList(new ArrayList<>());
+    private final List<Integer> staged = new ArrayList<>();
+    private final List<long[]> batches = Collections.synchronizedList(new ArrayList<>());
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    private int transactions;
+    private WriteQueue queue;
+
+    private WriteQueue newQueue(long windowMillis) {
+        queue = new WriteQueue(body -> {
+            transactions++;
+            staged.clear();
+            body.run();
+            applied.addAll(staged);
+        }, writer, windowMillis, batches::add);
+        return queue;
+    }
+
+    @After
+    public void tearDown() {
+        writer.shutdownNow();
+    }
+
+    private WriteQueue.Write write(int id) {
+        return () -> {
+            staged.add(id);
+            return new long[]{id};
+        };
+    }
+
+    @Test
+    public void burst_coalescesIntoOneOrderedBatch() throws Exception {
+        newQueue(50);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(queue.submit(write(i)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, transactions);
+        assertEquals(1, batches.size());
+        assertEquals(100, batches.get(0).length);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (int) applied.get(i));
+        }
+    }
+
+    @Test
+    public void failedWrite_failsOnlyItsOwnFuture() throws Exception {
+        newQueue(20);
+        CompletableFuture<Void> first = queue.submit(write(1));
+        CompletableFuture<Void> bad = queue.submit(() -> {
+            throw new IllegalStateException("constraint");
+        });
+        CompletableFuture<Void> last = queue.submit(write(3));
+
+        first.get(5, TimeUnit.SECONDS);
+        last.get(5, TimeUnit.SECONDS);
+        try {
+            bad.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertArrayEquals(new long[]{1, 3}, batches.get(0));
+        assertEquals(List.of(1, 3), applied);
+        // 一次被回滚的合并事务 + 逐条重试的三个事务
+        assertEquals(4, transactions);
+    }
+
+    @Test
+    public void failedTransaction_failsWholeBatch() throws Exception {
+        queue = new WriteQueue(body -> {
+            body.run();
+            throw new IllegalStateException("commit");
+        }, writer, 10, batches::add);
+        CompletableFuture<Void> f = queue.submit(write(1));
+        try {
+            f.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals("commit", e.getCause().getMessage());
+        }
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    public void listenerRunsBeforeFutureCompletes() throws Exception {
+        newQueue(10);
+        queue.submit(write(7)).get(5, TimeUnit.SECONDS);
+        assertEquals(1, batches.size());
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.budgetapp.viewmodel;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SummaryCacheTest {
+    @Test
+    public void invalidateDay_dropsOnlyOverlappingEntries() {
+        SummaryCache cache = new SummaryCache(8);
+        cache.put("march", 100, 131, "m", cache.version());
+        cache.put("april", 131, 161, "a", cache.version());
+
+        cache.invalidateDay(131);
+        assertEquals("m", cache.get("march"));
+        assertNull(cache.get("april"));
+    }
+
+    @Test
+    public void put_ignoresResultComputedBeforeInvalidation() {
+        SummaryCache cache = new SummaryCache(8);
+        long version = cache.version();
+        cache.invalidateDay(5);     // 计算期间发生写入
+        cache.put("week", 0, 7, "stale", version);
+        assertNull(cache.get("week"));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        SummaryCache cache = new SummaryCache(2);
+        cache.put(1, 0, 1, "a", cache.version());
+        cache.put(2, 1, 2, "b", cache.version());
+        cache.get(1);
+        cache.put(3, 2, 3, "c", cache.version());
+        assertEquals("a", cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals("c", cache.get(3));
+    }
+}